@@ -16,6 +16,8 @@
 
 package grondag.bitraster;
 
+import static grondag.bitraster.Constants.BLOCK_AXIS_SHIFT;
+import static grondag.bitraster.Constants.BOUNDS_CONCAVE;
 import static grondag.bitraster.Constants.BOUNDS_IN;
 import static grondag.bitraster.Constants.BOUNDS_OUTSIDE_OR_TOO_SMALL;
 import static grondag.bitraster.Constants.EDGE_BOTTOM;
@@ -102,7 +104,35 @@ import static grondag.bitraster.Constants.EVENT_0123_RRLR;
 import static grondag.bitraster.Constants.EVENT_0123_RRRF;
 import static grondag.bitraster.Constants.EVENT_0123_RRRL;
 import static grondag.bitraster.Constants.EVENT_0123_RRRR;
-import static grondag.bitraster.Constants.EVENT_DATA_LENGTH;
+import static grondag.bitraster.Constants.EVENT_012_FFF;
+import static grondag.bitraster.Constants.EVENT_012_FFL;
+import static grondag.bitraster.Constants.EVENT_012_FFR;
+import static grondag.bitraster.Constants.EVENT_012_FLF;
+import static grondag.bitraster.Constants.EVENT_012_FLL;
+import static grondag.bitraster.Constants.EVENT_012_FLR;
+import static grondag.bitraster.Constants.EVENT_012_FRF;
+import static grondag.bitraster.Constants.EVENT_012_FRL;
+import static grondag.bitraster.Constants.EVENT_012_FRR;
+import static grondag.bitraster.Constants.EVENT_012_LFF;
+import static grondag.bitraster.Constants.EVENT_012_LFL;
+import static grondag.bitraster.Constants.EVENT_012_LFR;
+import static grondag.bitraster.Constants.EVENT_012_LLF;
+import static grondag.bitraster.Constants.EVENT_012_LLL;
+import static grondag.bitraster.Constants.EVENT_012_LLR;
+import static grondag.bitraster.Constants.EVENT_012_LRF;
+import static grondag.bitraster.Constants.EVENT_012_LRL;
+import static grondag.bitraster.Constants.EVENT_012_LRR;
+import static grondag.bitraster.Constants.EVENT_012_RFF;
+import static grondag.bitraster.Constants.EVENT_012_RFL;
+import static grondag.bitraster.Constants.EVENT_012_RFR;
+import static grondag.bitraster.Constants.EVENT_012_RLF;
+import static grondag.bitraster.Constants.EVENT_012_RLL;
+import static grondag.bitraster.Constants.EVENT_012_RLR;
+import static grondag.bitraster.Constants.EVENT_012_RRF;
+import static grondag.bitraster.Constants.EVENT_012_RRL;
+import static grondag.bitraster.Constants.EVENT_012_RRR;
+import static grondag.bitraster.Constants.EVENT_0_LEFT;
+import static grondag.bitraster.Constants.EVENT_0_RIGHT;
 import static grondag.bitraster.Constants.EVENT_POSITION_MASK;
 import static grondag.bitraster.Constants.IDX_AX0;
 import static grondag.bitraster.Constants.IDX_AX1;
@@ -120,13 +150,14 @@ import static grondag.bitraster.Constants.IDX_DX0;
 import static grondag.bitraster.Constants.IDX_DX1;
 import static grondag.bitraster.Constants.IDX_DY0;
 import static grondag.bitraster.Constants.IDX_DY1;
-import static grondag.bitraster.Constants.MAX_PIXEL_Y;
+import static grondag.bitraster.Constants.IDX_POLYGON_EDGES;
+import static grondag.bitraster.Constants.MIN_PIXEL_SIZE;
 import static grondag.bitraster.Constants.PIXEL_HEIGHT;
 import static grondag.bitraster.Constants.PIXEL_WIDTH;
-import static grondag.bitraster.Constants.PRECISE_HEIGHT;
-import static grondag.bitraster.Constants.PRECISE_HEIGHT_CLAMP;
-import static grondag.bitraster.Constants.PRECISE_WIDTH;
-import static grondag.bitraster.Constants.PRECISE_WIDTH_CLAMP;
+import static grondag.bitraster.Constants.POLYGON_EDGE_LIMIT;
+import static grondag.bitraster.Constants.POLYGON_EDGE_STRIDE;
+import static grondag.bitraster.Constants.POLYGON_VERTEX_LIMIT;
+import static grondag.bitraster.Constants.PRECISE_PIXEL_CENTER;
 import static grondag.bitraster.Constants.PRECISION_BITS;
 import static grondag.bitraster.Constants.PV_PX;
 import static grondag.bitraster.Constants.PV_PY;
@@ -135,23 +166,183 @@ import static grondag.bitraster.Constants.PV_Z;
 import static grondag.bitraster.Constants.SCANT_PRECISE_PIXEL_CENTER;
 import static grondag.bitraster.Constants.TILE_AXIS_MASK;
 import static grondag.bitraster.Constants.TILE_AXIS_SHIFT;
-import static grondag.bitraster.Constants.TILE_COUNT;
-import static grondag.bitraster.Constants.TILE_HEIGHT_MASK;
-import static grondag.bitraster.Constants.TILE_WIDTH;
-import static grondag.bitraster.Constants.TILE_WIDTH_BITS;
-import static grondag.bitraster.Constants.TILE_WIDTH_MASK;
+import static grondag.bitraster.Constants.TILE_PIXEL_DIAMETER;
+import static grondag.bitraster.Constants.TILE_PIXEL_INDEX_MASK;
 import static grondag.bitraster.Constants.VERTEX_DATA_LENGTH;
 import static grondag.bitraster.Indexer.tileIndexFromPixelXY;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 // Some elements are adapted from content found at
 // https://fgiesen.wordpress.com/2013/02/17/optimizing-sw-occlusion-culling-index/
 // by Fabian “ryg” Giesen. That content is in the public domain.
 public abstract class AbstractRasterizer {
+	/**
+	 * True when jdk.incubator.vector was resolved at launch and the hardware supports it well,
+	 * in which case tile coverage is computed with the Vector API. Module is checked first without
+	 * loading any vector classes so the scalar path still works when it is absent.
+	 * Launch with --add-modules jdk.incubator.vector to enable.
+	 */
+	static final boolean VECTOR_COVERAGE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() && VectorCoverage.SUPPORTED;
+
+	/**
+	 * Use branch-free span mask lookup for scalar tile coverage instead of the row-by-row branching version.
+	 * Off by default because the branching version measured faster in TileCoverageBenchmark - it exits early on
+	 * full tiles and the table loads and clamps cost more than the mispredictions they avoid.  Hardware with
+	 * worse branch prediction may differ.  Launch with -Dbitraster.spanTableCoverage=true to enable.
+	 */
+	static final boolean SPAN_TABLE_COVERAGE = Boolean.getBoolean("bitraster.spanTableCoverage");
+
+	/**
+	 * Compute coverage of shapes that span at most 2x2 tiles directly from edges, skipping events and
+	 * the summary walk. Most box tests are this small. Same coverage either way; launch with
+	 * -Dbitraster.noSmallShapes=true to always use events, for comparison.
+	 */
+	static final boolean SMALL_SHAPE_COVERAGE = !Boolean.getBoolean("bitraster.noSmallShapes");
+
+	/**
+	 * When true, tiles are kept in page-aligned direct memory instead of a long array so they
+	 * can be shared with native code without copying - see {@link #tileBuffer()}. Fixed for
+	 * the life of the JVM so the choice costs nothing in traversal code.
+	 * Launch with -Dbitraster.offHeapTiles=true to enable.
+	 */
+	static final boolean OFF_HEAP_TILES = Boolean.getBoolean("bitraster.offHeapTiles");
+
+	/** Alignment of off-heap tiles. Same as the usual OS page size. */
+	private static final int TILE_BUFFER_ALIGNMENT = 4096;
+
+	/**
+	 * Pending draws with fewer shapes than this are drawn on the calling thread even when a
+	 * draw pool is set, because splitting them into bands costs more than it saves.
+	 */
+	private static final int PARALLEL_DRAW_MIN_SHAPES = 64;
+
+	/** Raster dimensions and values derived from them. Fixed at construction. */
+	final int pixelWidth, pixelHeight, lastPixelY;
+	final int preciseWidth, preciseHeight, halfPreciseWidth, halfPreciseHeight;
+
+	/**
+	 * Clamp to these to ensure value + half pixel rounds down to last pixel.
+	 */
+	final int preciseWidthClamp, preciseHeightClamp;
+
+	/**
+	 * Tile rows are always a power of two so that tile, block and super block indexing remains shift-based.
+	 * The number of tile rows can be anything, so the last row of blocks may be partial.
+	 */
+	final int tileWidthBits, tileWidthMask, tileHeight, tileCount;
+	final int blockWidthBits, blockCount, superBlockWidthBits, superBlockCount;
+
+	/**
+	 * Tile indices are less than this.  Same as {@link #tileCount} unless tiles are in
+	 * Morton order, where tiles that don't exist in the last row of blocks still have an index.
+	 */
+	final int tileIndexLimit;
+
+	/**
+	 * Bits in {@link #fullTiles} for tiles that don't exist in the last row of blocks. Kept set
+	 * so that partial blocks can still become full. Zero when the last row of blocks is complete.
+	 */
+	final long lastBlockRowPadding;
+	final int eventDataLength;
+
 	final Matrix4L mvpMatrix = new Matrix4L();
 	final int[] vertexData = new int[VERTEX_DATA_LENGTH];
-	final int[] eventData = new int[EVENT_DATA_LENGTH];
-	final long[] tiles = new long[TILE_COUNT];
-	final EventFiller[] EVENT_FILLERS = new EventFiller[0x1000];
+	final int[] eventData;
+	/** One word per 8x8 tile, indexed by tile x and y. Null when {@link #OFF_HEAP_TILES} or {@link #sparseTiles} is true. */
+	final long[] tiles;
+
+	/**
+	 * When true, tile words are only stored for blocks that have a tile with some but not all pixels set.
+	 * Other blocks are entirely described by {@link #fullTiles} and {@link #setTiles}.  Takes precedence
+	 * over {@link #OFF_HEAP_TILES}.  Meant for secondary occluders that are mostly empty or full.
+	 */
+	final boolean sparseTiles;
+
+	/** Tile words of each block in pixel bit order when {@link #sparseTiles}, or null if the block has no mixed tiles. */
+	private final long[][] blockTiles;
+
+	/** Cleared block tile arrays kept for reuse so that redraws don't allocate. */
+	private final long[][] spareBlockTiles;
+	private int spareBlockTileCount;
+
+	/** Same content as {@link #tiles} in native order when {@link #OFF_HEAP_TILES} is true, otherwise null. */
+	private final ByteBuffer tileBytes;
+	private final LongBuffer tileWords;
+
+	/**
+	 * Summary of {@link #tiles} for each 8x8 block of tiles, with bits in the same order as pixels in a tile.
+	 * A bit in fullTiles is set when the tile is fully occluded.  A bit in setTiles is set when any pixel
+	 * in the tile is occluded.  Maintained incrementally as quads are drawn.
+	 */
+	final long[] fullTiles;
+	final long[] setTiles;
+
+	/** Same as {@link #fullTiles} and {@link #setTiles} but one level higher - one bit per block in each 8x8 super block. */
+	final long[] fullBlocks;
+	final long[] setBlocks;
+
+	/**
+	 * When true, each tile also tracks a conservative far depth for the pixels set in it,
+	 * and tests and draws compare against it. This means occluders can be drawn in any order.
+	 */
+	boolean depthEnabled = false;
+
+	/**
+	 * When true, draws only set pixels that are entirely inside the occluder instead of
+	 * pixels with centers inside.  Tests always use pixel centers.  Means tests don't
+	 * need fuzz to avoid false occlusion along occluder edges.
+	 */
+	boolean innerCoverage = false;
+
+	/** Tiles with every pixel set since the last clear. Tiles that only exist as padding aren't counted. */
+	int fullTileCount;
+
+	/**
+	 * Far depth of occluders in each tile, valid only when the tile has some pixels set.
+	 * Allocated when depth is first enabled.
+	 */
+	float[] tileDepth;
+
+	/** Upper bound of {@link #tileDepth} for all tiles set in each block since the last clear. */
+	float[] blockDepth;
+
+	/** Upper bound of {@link #blockDepth} for all blocks in each super block since the last clear. */
+	float[] superBlockDepth;
+
+	/** Depth range of the current quad. Only computed when depth is enabled. */
+	protected float nearDepth, farDepth;
+
+	/** Projected vertex indices of the current convex polygon, in winding order. */
+	final int[] polygonVertices = new int[POLYGON_VERTEX_LIMIT];
+
+	/** Precise screen coordinates of the current convex polygon after clipping. */
+	final int[] polygonX = new int[POLYGON_EDGE_LIMIT];
+	final int[] polygonY = new int[POLYGON_EDGE_LIMIT];
+
+	/** Edge indices sorted by classification when populating polygon events. Flat edges only need position and y. */
+	private final int[] leftEdges = new int[POLYGON_EDGE_LIMIT];
+	private final int[] rightEdges = new int[POLYGON_EDGE_LIMIT];
+	private final int[] flatPositions = new int[POLYGON_EDGE_LIMIT];
+	private final int[] flatY = new int[POLYGON_EDGE_LIMIT];
+
+	/**
+	 * True when the current shape spans at most 2x2 tiles and its coverage was computed directly
+	 * from edges into {@link #smallCoverage} instead of populating events. See {@link #prepareSmallCoverage(int, int, int)}.
+	 */
+	private boolean smallShape;
+
+	/** Coverage of each tile of a small shape, indexed by ((tileY - minTileY) << 1) | (tileX - minTileX). */
+	private final long[] smallCoverage = new long[4];
+
+	/** Fixed-point x of each left and right edge at the current row, and change per row, while computing {@link #smallCoverage}. */
+	private final long[] smallEdgeX = new long[POLYGON_EDGE_LIMIT * 2];
+	private final long[] smallEdgeStep = new long[POLYGON_EDGE_LIMIT * 2];
 
 	/** Bounds of current triangle - pixel coordinates. */
 	protected int minPixelX, minPixelY, maxPixelX, maxPixelY;
@@ -163,450 +354,225 @@ public abstract class AbstractRasterizer {
 	/** Control iteration in populateEvents_ methods. */
 	protected int eventY0, eventLimit;
 
-	{
-		EVENT_FILLERS[EVENT_0123_RRRR] = () -> {
-			populateLeftEvents();
-			populateRightEvents4(IDX_AX0, IDX_BX0, IDX_CX0, IDX_DX0);
-		};
-		EVENT_FILLERS[EVENT_0123_LRRR] = () -> {
-			populateLeftEvents(IDX_AX0);
-			populateRightEvents3(IDX_BX0, IDX_CX0, IDX_DX0);
-		};
-		EVENT_FILLERS[EVENT_0123_FRRR] = () -> {
-			populateLeftEvents();
-			populateRightEvents3(IDX_BX0, IDX_CX0, IDX_DX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RLRR] = () -> {
-			populateLeftEvents(IDX_BX0);
-			populateRightEvents3(IDX_AX0, IDX_CX0, IDX_DX0);
-		};
-		EVENT_FILLERS[EVENT_0123_LLRR] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_BX0);
-			populateRightEvents2(IDX_CX0, IDX_DX0);
-		};
-		EVENT_FILLERS[EVENT_0123_FLRR] = () -> {
-			populateLeftEvents(IDX_BX0);
-			populateRightEvents2(IDX_CX0, IDX_DX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RFRR] = () -> {
-			populateLeftEvents();
-			populateRightEvents3(IDX_AX0, IDX_CX0, IDX_DX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LFRR] = () -> {
-			populateLeftEvents(IDX_AX0);
-			populateRightEvents2(IDX_CX0, IDX_DX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FFRR] = () -> {
-			populateLeftEvents();
-			populateRightEvents2(IDX_CX0, IDX_DX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-
-		EVENT_FILLERS[EVENT_0123_RRLR] = () -> {
-			populateLeftEvents(IDX_CX0);
-			populateRightEvents3(IDX_AX0, IDX_BX0, IDX_DX0);
-		};
-		EVENT_FILLERS[EVENT_0123_LRLR] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_CX0);
-			populateRightEvents2(IDX_BX0, IDX_DX0);
-		};
-		EVENT_FILLERS[EVENT_0123_FRLR] = () -> {
-			populateLeftEvents(IDX_CX0);
-			populateRightEvents2(IDX_BX0, IDX_DX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RLLR] = () -> {
-			populateLeftEvents2(IDX_BX0, IDX_CX0);
-			populateRightEvents2(IDX_AX0, IDX_DX0);
-		};
-		EVENT_FILLERS[EVENT_0123_LLLR] = () -> {
-			populateLeftEvents3(IDX_AX0, IDX_BX0, IDX_CX0);
-			populateRightEvents(IDX_DX0);
-		};
-		EVENT_FILLERS[EVENT_0123_FLLR] = () -> {
-			populateLeftEvents2(IDX_BX0, IDX_CX0);
-			populateRightEvents(IDX_DX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RFLR] = () -> {
-			populateLeftEvents(IDX_CX0);
-			populateRightEvents2(IDX_AX0, IDX_DX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LFLR] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_CX0);
-			populateRightEvents(IDX_DX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FFLR] = () -> {
-			populateLeftEvents(IDX_CX0);
-			populateRightEvents(IDX_DX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-
-		EVENT_FILLERS[EVENT_0123_LRFR] = () -> {
-			populateLeftEvents(IDX_AX0);
-			populateRightEvents2(IDX_BX0, IDX_DX0);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RRFR] = () -> {
-			populateLeftEvents();
-			populateRightEvents3(IDX_AX0, IDX_BX0, IDX_DX0);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FRFR] = () -> {
-			populateLeftEvents();
-			populateRightEvents2(IDX_BX0, IDX_DX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RLFR] = () -> {
-			populateLeftEvents(IDX_BX0);
-			populateRightEvents2(IDX_AX0, IDX_DX0);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LLFR] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_BX0);
-			populateRightEvents(IDX_DX0);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FLFR] = () -> {
-			populateLeftEvents(IDX_BX0);
-			populateRightEvents(IDX_DX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RFFR] = () -> {
-			populateLeftEvents();
-			populateRightEvents2(IDX_AX0, IDX_DX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LFFR] = () -> {
-			populateLeftEvents(IDX_AX0);
-			populateRightEvents(IDX_DX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FFFR] = () -> {
-			populateLeftEvents();
-			populateRightEvents(IDX_DX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-
-		EVENT_FILLERS[EVENT_0123_RRRL] = () -> {
-			populateLeftEvents(IDX_DX0);
-			populateRightEvents3(IDX_AX0, IDX_BX0, IDX_CX0);
-		};
-		EVENT_FILLERS[EVENT_0123_LRRL] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_DX0);
-			populateRightEvents2(IDX_BX0, IDX_CX0);
-		};
-		EVENT_FILLERS[EVENT_0123_FRRL] = () -> {
-			populateLeftEvents(IDX_DX0);
-			populateRightEvents2(IDX_BX0, IDX_CX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RLRL] = () -> {
-			populateLeftEvents2(IDX_BX0, IDX_DX0);
-			populateRightEvents2(IDX_AX0, IDX_CX0);
-		};
-		EVENT_FILLERS[EVENT_0123_LLRL] = () -> {
-			populateLeftEvents3(IDX_AX0, IDX_BX0, IDX_DX0);
-			populateRightEvents(IDX_CX0);
-		};
-		EVENT_FILLERS[EVENT_0123_FLRL] = () -> {
-			populateLeftEvents2(IDX_BX0, IDX_DX0);
-			populateRightEvents(IDX_CX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RFRL] = () -> {
-			populateLeftEvents(IDX_DX0);
-			populateRightEvents2(IDX_AX0, IDX_CX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LFRL] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_DX0);
-			populateRightEvents(IDX_CX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FFRL] = () -> {
-			populateLeftEvents(IDX_DX0);
-			populateRightEvents(IDX_CX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RRLL] = () -> {
-			populateLeftEvents2(IDX_CX0, IDX_DX0);
-			populateRightEvents2(IDX_AX0, IDX_BX0);
-		};
-		EVENT_FILLERS[EVENT_0123_LRLL] = () -> {
-			populateLeftEvents3(IDX_AX0, IDX_CX0, IDX_DX0);
-			populateRightEvents(IDX_BX0);
-		};
-		EVENT_FILLERS[EVENT_0123_FRLL] = () -> {
-			populateLeftEvents2(IDX_CX0, IDX_DX0);
-			populateRightEvents(IDX_BX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RLLL] = () -> {
-			populateLeftEvents3(IDX_BX0, IDX_CX0, IDX_DX0);
-			populateRightEvents(IDX_AX0);
-		};
-		EVENT_FILLERS[EVENT_0123_LLLL] = () -> {
-			populateLeftEvents4(IDX_AX0, IDX_BX0, IDX_CX0, IDX_DX0);
-			populateRightEvents();
-		};
-		EVENT_FILLERS[EVENT_0123_FLLL] = () -> {
-			populateLeftEvents3(IDX_BX0, IDX_CX0, IDX_DX0);
-			populateRightEvents();
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RFLL] = () -> {
-			populateLeftEvents2(IDX_CX0, IDX_DX0);
-			populateRightEvents(IDX_AX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LFLL] = () -> {
-			populateLeftEvents3(IDX_AX0, IDX_CX0, IDX_DX0);
-			populateRightEvents();
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FFLL] = () -> {
-			populateLeftEvents2(IDX_CX0, IDX_DX0);
-			populateRightEvents();
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LRFL] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_DX0);
-			populateRightEvents(IDX_BX0);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RRFL] = () -> {
-			populateLeftEvents(IDX_DX0);
-			populateRightEvents2(IDX_AX0, IDX_BX0);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FRFL] = () -> {
-			populateLeftEvents(IDX_DX0);
-			populateRightEvents(IDX_BX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RLFL] = () -> {
-			populateLeftEvents2(IDX_BX0, IDX_DX0);
-			populateRightEvents(IDX_AX0);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LLFL] = () -> {
-			populateLeftEvents3(IDX_AX0, IDX_BX0, IDX_DX0);
-			populateRightEvents();
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FLFL] = () -> {
-			populateLeftEvents2(IDX_BX0, IDX_DX0);
-			populateRightEvents();
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RFFL] = () -> {
-			populateLeftEvents(IDX_DX0);
-			populateRightEvents(IDX_AX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LFFL] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_DX0);
-			populateRightEvents();
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FFFL] = () -> {
-			populateLeftEvents(IDX_DX0);
-			populateRightEvents();
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RRRF] = () -> {
-			populateLeftEvents();
-			populateRightEvents3(IDX_AX0, IDX_BX0, IDX_CX0);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LRRF] = () -> {
-			populateLeftEvents(IDX_AX0);
-			populateRightEvents2(IDX_BX0, IDX_CX0);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FRRF] = () -> {
-			populateLeftEvents();
-			populateRightEvents2(IDX_BX0, IDX_CX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RLRF] = () -> {
-			populateLeftEvents(IDX_BX0);
-			populateRightEvents2(IDX_AX0, IDX_CX0);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LLRF] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_BX0);
-			populateRightEvents(IDX_CX0);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FLRF] = () -> {
-			populateLeftEvents(IDX_BX0);
-			populateRightEvents(IDX_CX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RFRF] = () -> {
-			populateLeftEvents();
-			populateRightEvents2(IDX_AX0, IDX_CX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LFRF] = () -> {
-			populateLeftEvents(IDX_AX0);
-			populateRightEvents(IDX_CX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FFRF] = () -> {
-			populateLeftEvents();
-			populateRightEvents(IDX_CX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RRLF] = () -> {
-			populateLeftEvents(IDX_CX0);
-			populateRightEvents2(IDX_AX0, IDX_BX0);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LRLF] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_CX0);
-			populateRightEvents(IDX_BX0);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FRLF] = () -> {
-			populateLeftEvents(IDX_CX0);
-			populateRightEvents(IDX_BX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RLLF] = () -> {
-			populateLeftEvents2(IDX_BX0, IDX_CX0);
-			populateRightEvents(IDX_AX0);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LLLF] = () -> {
-			populateLeftEvents3(IDX_AX0, IDX_BX0, IDX_CX0);
-			populateRightEvents();
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FLLF] = () -> {
-			populateLeftEvents2(IDX_BX0, IDX_CX0);
-			populateRightEvents();
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RFLF] = () -> {
-			populateLeftEvents(IDX_CX0);
-			populateRightEvents(IDX_AX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LFLF] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_CX0);
-			populateRightEvents();
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FFLF] = () -> {
-			populateLeftEvents(IDX_CX0);
-			populateRightEvents();
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LRFF] = () -> {
-			populateLeftEvents(IDX_AX0);
-			populateRightEvents(IDX_BX0);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RRFF] = () -> {
-			populateLeftEvents();
-			populateRightEvents2(IDX_AX0, IDX_BX0);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FRFF] = () -> {
-			populateLeftEvents();
-			populateRightEvents(IDX_BX0);
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RLFF] = () -> {
-			populateLeftEvents(IDX_BX0);
-			populateRightEvents(IDX_AX0);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LLFF] = () -> {
-			populateLeftEvents2(IDX_AX0, IDX_BX0);
-			populateRightEvents();
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FLFF] = () -> {
-			populateLeftEvents(IDX_BX0);
-			populateRightEvents();
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_RFFF] = () -> {
-			populateLeftEvents();
-			populateRightEvents(IDX_AX0);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_LFFF] = () -> {
-			populateLeftEvents(IDX_AX0);
-			populateRightEvents();
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
-		EVENT_FILLERS[EVENT_0123_FFFF] = () -> {
-			// fill it
-			populateLeftEvents();
-			populateRightEvents();
-			populateFlatEvents(pos0, vertexData[IDX_AY0]);
-			populateFlatEvents(pos1, vertexData[IDX_BY0]);
-			populateFlatEvents(pos2, vertexData[IDX_CY0]);
-			populateFlatEvents(pos3, vertexData[IDX_DY0]);
-		};
+	/** When not null, prepared shapes are kept in {@link #drawBatch} and drawn by rows of blocks on this pool. */
+	private ForkJoinPool drawPool;
+	private boolean deferDraws;
+
+	/** Shapes prepared but not yet drawn. Null unless draws are deferred or parallel. */
+	private DrawBatch drawBatch;
+
+	/** Pixel rows used by {@link #reproject}, with pixelWidth / 64 words per row. Allocated on first use. */
+	private long[] reprojectRows;
+
+	/** One eroded pixel row for {@link #reproject}. Allocated with {@link #reprojectRows}. */
+	private long[] reprojectRow;
+
+	/** Tile words of one tile row for {@link #reproject}, left clear after each use. Allocated with {@link #reprojectRows}. */
+	private long[] reprojectTileRow;
+
+	/**
+	 * @param pixelWidth Width of the raster in pixels. Must be a power of two
+	 * from {@link Constants#MIN_PIXEL_SIZE} to {@link Constants#PIXEL_WIDTH}, inclusive.
+	 * @param pixelHeight Height of the raster in pixels. Must be a multiple of 8
+	 * no larger than {@link Constants#PIXEL_HEIGHT}. Does not need to be a power of two.
+	 */
+	AbstractRasterizer(int pixelWidth, int pixelHeight) {
+		this(pixelWidth, pixelHeight, false);
+	}
+
+	/**
+	 * @param sparseTiles True to store tiles only where blocks have mixed tiles - see {@link #sparseTiles}.
+	 */
+	AbstractRasterizer(int pixelWidth, int pixelHeight, boolean sparseTiles) {
+		if (pixelWidth < MIN_PIXEL_SIZE || pixelWidth > PIXEL_WIDTH || Integer.bitCount(pixelWidth) != 1) {
+			throw new IllegalArgumentException("Raster width must be a power of two from " + MIN_PIXEL_SIZE + " to " + PIXEL_WIDTH + ". Got " + pixelWidth);
+		}
+
+		if (pixelHeight <= 0 || pixelHeight > PIXEL_HEIGHT || (pixelHeight & TILE_PIXEL_INDEX_MASK) != 0) {
+			throw new IllegalArgumentException("Raster height must be a multiple of " + TILE_PIXEL_DIAMETER + " no larger than " + PIXEL_HEIGHT + ". Got " + pixelHeight);
+		}
+
+		this.pixelWidth = pixelWidth;
+		this.pixelHeight = pixelHeight;
+		lastPixelY = pixelHeight - 1;
+		preciseWidth = pixelWidth << PRECISION_BITS;
+		preciseHeight = pixelHeight << PRECISION_BITS;
+		halfPreciseWidth = preciseWidth / 2;
+		halfPreciseHeight = preciseHeight / 2;
+		preciseWidthClamp = preciseWidth - PRECISE_PIXEL_CENTER;
+		preciseHeightClamp = preciseHeight - PRECISE_PIXEL_CENTER;
+
+		tileWidthBits = Integer.numberOfTrailingZeros(pixelWidth) - TILE_AXIS_SHIFT;
+		tileWidthMask = (1 << tileWidthBits) - 1;
+		tileHeight = pixelHeight >> TILE_AXIS_SHIFT;
+		tileCount = tileHeight << tileWidthBits;
+
+		// smallest widths have less than one full super block
+		final int blockHeight = (tileHeight + 7) >> BLOCK_AXIS_SHIFT;
+		blockWidthBits = tileWidthBits - BLOCK_AXIS_SHIFT;
+		blockCount = blockHeight << blockWidthBits;
+		superBlockWidthBits = Math.max(0, blockWidthBits - BLOCK_AXIS_SHIFT);
+		superBlockCount = ((blockHeight + 7) >> BLOCK_AXIS_SHIFT) << superBlockWidthBits;
+		lastBlockRowPadding = (tileHeight & 7) == 0 ? 0 : -1L << ((tileHeight & 7) << 3);
+		tileIndexLimit = Indexer.MORTON_TILES ? blockCount << 6 : tileCount;
+
+		eventDataLength = pixelHeight * 2;
+		eventData = new int[eventDataLength];
+		this.sparseTiles = sparseTiles;
+
+		if (sparseTiles) {
+			tiles = null;
+			tileBytes = null;
+			tileWords = null;
+			blockTiles = new long[blockCount][];
+			spareBlockTiles = new long[blockCount][];
+		} else if (OFF_HEAP_TILES) {
+			tiles = null;
+			// alignedSlice also rounds the end down, so allocate whole pages and trim to the tiles after
+			final int tileBytesLength = tileIndexLimit * Long.BYTES;
+			final int pageBytesLength = (tileBytesLength + TILE_BUFFER_ALIGNMENT - 1) & -TILE_BUFFER_ALIGNMENT;
+			tileBytes = ByteBuffer.allocateDirect(pageBytesLength + TILE_BUFFER_ALIGNMENT).alignedSlice(TILE_BUFFER_ALIGNMENT)
+					.limit(tileBytesLength).slice().order(ByteOrder.nativeOrder());
+			tileWords = tileBytes.asLongBuffer();
+			blockTiles = null;
+			spareBlockTiles = null;
+		} else {
+			tiles = new long[tileIndexLimit];
+			tileBytes = null;
+			tileWords = null;
+			blockTiles = null;
+			spareBlockTiles = null;
+		}
+
+		fullTiles = new long[blockCount];
+		setTiles = new long[blockCount];
+		fullBlocks = new long[superBlockCount];
+		setBlocks = new long[superBlockCount];
+		clear();
 	}
 
 	final void copyFrom(AbstractRasterizer source) {
+		source.flushDraws();
+
+		if (drawBatch != null) {
+			drawBatch.clear();
+		}
+
 		mvpMatrix.copyFrom(source.mvpMatrix);
 		System.arraycopy(source.vertexData, 0, vertexData, 0, VERTEX_DATA_LENGTH);
-		System.arraycopy(source.eventData, 0, eventData, 0, EVENT_DATA_LENGTH);
-		System.arraycopy(source.tiles, 0, tiles, 0, TILE_COUNT);
+		System.arraycopy(source.eventData, 0, eventData, 0, eventDataLength);
+
+		if (sparseTiles) {
+			for (int blockIndex = 0; blockIndex < blockCount; ++blockIndex) {
+				releaseBlockTiles(blockIndex);
+			}
+		}
+
+		// sparse tiles are rebuilt from summary bits, so those must be copied first
+		System.arraycopy(source.fullTiles, 0, fullTiles, 0, blockCount);
+		System.arraycopy(source.setTiles, 0, setTiles, 0, blockCount);
+		System.arraycopy(source.fullBlocks, 0, fullBlocks, 0, superBlockCount);
+		System.arraycopy(source.setBlocks, 0, setBlocks, 0, superBlockCount);
+
+		if (sparseTiles || source.sparseTiles) {
+			for (int tileIndex = 0; tileIndex < tileIndexLimit; ++tileIndex) {
+				setTile(tileIndex, source.tile(tileIndex));
+			}
+		} else if (OFF_HEAP_TILES) {
+			tileWords.put(0, source.tileWords, 0, tileIndexLimit);
+		} else {
+			System.arraycopy(source.tiles, 0, tiles, 0, tileIndexLimit);
+		}
+
+		enableDepth(source.depthEnabled);
+		innerCoverage = source.innerCoverage;
+		fullTileCount = source.fullTileCount;
+
+		if (depthEnabled) {
+			System.arraycopy(source.tileDepth, 0, tileDepth, 0, tileIndexLimit);
+			System.arraycopy(source.blockDepth, 0, blockDepth, 0, blockCount);
+			System.arraycopy(source.superBlockDepth, 0, superBlockDepth, 0, superBlockCount);
+		}
+	}
+
+	/**
+	 * Enables or disables depth tracking.  Content drawn before the change
+	 * will not have valid depth, so caller should clear before drawing again.
+	 */
+	final void enableDepth(boolean enable) {
+		flushDraws();
+
+		if (enable && tileDepth == null) {
+			tileDepth = new float[tileIndexLimit];
+			blockDepth = new float[blockCount];
+			superBlockDepth = new float[superBlockCount];
+		}
+
+		depthEnabled = enable;
+	}
+
+	/**
+	 * Only tiles flagged in {@link #setTiles} can have bits, so only those are cleared.
+	 * Much cheaper than clearing all tiles when little of the screen was drawn.
+	 */
+	final void clear() {
+		final long[] setTiles = this.setTiles;
+		final long[] setBlocks = this.setBlocks;
+		final int superBlockWidthMask = (1 << superBlockWidthBits) - 1;
+
+		for (int superIndex = 0; superIndex < superBlockCount; ++superIndex) {
+			long blocks = setBlocks[superIndex];
+
+			if (blocks == 0) {
+				continue;
+			}
+
+			final int superBaseX = (superIndex & superBlockWidthMask) << BLOCK_AXIS_SHIFT;
+			final int superBaseY = (superIndex >> superBlockWidthBits) << BLOCK_AXIS_SHIFT;
+
+			while (blocks != 0) {
+				final int blockBit = Long.numberOfTrailingZeros(blocks);
+				blocks &= blocks - 1;
+
+				final int tileBaseX = (superBaseX | (blockBit & 7)) << BLOCK_AXIS_SHIFT;
+				final int tileBaseY = (superBaseY | (blockBit >> 3)) << BLOCK_AXIS_SHIFT;
+				final int blockIndex = (tileBaseX >> BLOCK_AXIS_SHIFT) | ((tileBaseY >> BLOCK_AXIS_SHIFT) << blockWidthBits);
+				long set = setTiles[blockIndex];
+
+				if (sparseTiles) {
+					releaseBlockTiles(blockIndex);
+				} else {
+					while (set != 0) {
+						final int tileBit = Long.numberOfTrailingZeros(set);
+						set &= set - 1;
+						setTile(Indexer.tileIndex(tileBaseX | (tileBit & 7), tileBaseY | (tileBit >> 3), tileWidthBits), 0);
+					}
+				}
+
+				setTiles[blockIndex] = 0;
+				fullTiles[blockIndex] = 0;
+			}
+
+			setBlocks[superIndex] = 0;
+		}
+
+		Arrays.fill(fullBlocks, 0);
+		Arrays.fill(setBlocks, 0);
+		fullTileCount = 0;
+
+		if (drawBatch != null) {
+			drawBatch.clear();
+		}
+
+		if (lastBlockRowPadding != 0) {
+			Arrays.fill(fullTiles, blockCount - (1 << blockWidthBits), blockCount, lastBlockRowPadding);
+		}
+
+		if (depthEnabled) {
+			// tile depth is only read when a tile has bits set and so does not need to be cleared
+			Arrays.fill(blockDepth, Float.NEGATIVE_INFINITY);
+			Arrays.fill(superBlockDepth, Float.NEGATIVE_INFINITY);
+		}
 	}
 
 	final void drawQuad(int v0, int v1, int v2, int v3) {
@@ -614,166 +580,1193 @@ public abstract class AbstractRasterizer {
 			return;
 		}
 
-		// Don't draw single points
-		if (minPixelX == maxPixelX && minPixelY == maxPixelY) {
-			return;
+		if (depthEnabled) {
+			prepareDepth(v0, v1, v2, v3);
+		}
+
+		// Don't draw single points
+		if (minPixelX == maxPixelX && minPixelY == maxPixelY) {
+			return;
+		}
+
+		drawQuad();
+	}
+
+	/**
+	 * Same as {@link #drawQuad(int, int, int, int)} but for a single triangle.
+	 * Vertices must be wound the same way as quads.
+	 */
+	final void drawTriangle(int v0, int v1, int v2) {
+		if (prepareTriangleBounds(v0, v1, v2) == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
+			return;
+		}
+
+		if (depthEnabled) {
+			prepareDepth(v0, v1, v2);
+		}
+
+		// Don't draw single points
+		if (minPixelX == maxPixelX && minPixelY == maxPixelY) {
+			return;
+		}
+
+		drawQuad();
+	}
+
+	final boolean isQuadPartiallyClear(int v0, int v1, int v2, int v3) {
+		if (prepareBounds(v0, v1, v2, v3) == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
+			return false;
+		}
+
+		if (depthEnabled) {
+			prepareDepth(v0, v1, v2, v3);
+		}
+
+		final int px = minPixelX;
+		final int py = minPixelY;
+
+		if (px == maxPixelX && py == maxPixelY) {
+			return px >= 0 && py >= 0 && px < pixelWidth && py < pixelHeight
+					&& (isPixelClear(px, py) || depthEnabled && tileDepth[tileIndexFromPixelXY(px, py, tileWidthBits)] >= nearDepth);
+		} else {
+			return isQuadPartiallyClear();
+		}
+	}
+
+	final boolean isTrianglePartiallyClear(int v0, int v1, int v2) {
+		if (prepareTriangleBounds(v0, v1, v2) == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
+			return false;
+		}
+
+		if (depthEnabled) {
+			prepareDepth(v0, v1, v2);
+		}
+
+		final int px = minPixelX;
+		final int py = minPixelY;
+
+		if (px == maxPixelX && py == maxPixelY) {
+			return px >= 0 && py >= 0 && px < pixelWidth && py < pixelHeight
+					&& (isPixelClear(px, py) || depthEnabled && tileDepth[tileIndexFromPixelXY(px, py, tileWidthBits)] >= nearDepth);
+		} else {
+			return isQuadPartiallyClear();
+		}
+	}
+
+	/**
+	 * Draws a convex polygon of six vertices, such as the silhouette of a box.
+	 * Avoids walking tiles on shared edges more than once, as would happen if each face
+	 * were drawn as a separate quad.  Vertices must be wound the same way as quads.
+	 *
+	 * <p>Subpixel rounding can leave a nearly edge-on silhouette slightly concave. Such
+	 * hexagons are drawn as quads v0-v3 and v3-v0 instead, so v0 and v3 should be the ends
+	 * of the edge shared by two faces.
+	 */
+	final void drawHexagon(int v0, int v1, int v2, int v3, int v4, int v5) {
+		final int bounds = prepareHexagon(v0, v1, v2, v3, v4, v5);
+
+		if (bounds == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
+			return;
+		} else if (bounds == BOUNDS_CONCAVE) {
+			drawQuad(v0, v1, v2, v3);
+			drawQuad(v3, v4, v5, v0);
+			return;
+		}
+
+		// Don't draw single points
+		if (minPixelX == maxPixelX && minPixelY == maxPixelY) {
+			return;
+		}
+
+		drawQuad();
+	}
+
+	final boolean isHexagonPartiallyClear(int v0, int v1, int v2, int v3, int v4, int v5) {
+		final int bounds = prepareHexagon(v0, v1, v2, v3, v4, v5);
+
+		if (bounds == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
+			return false;
+		} else if (bounds == BOUNDS_CONCAVE) {
+			return isQuadPartiallyClear(v0, v1, v2, v3) || isQuadPartiallyClear(v3, v4, v5, v0);
+		}
+
+		final int px = minPixelX;
+		final int py = minPixelY;
+
+		if (px == maxPixelX && py == maxPixelY) {
+			return px >= 0 && py >= 0 && px < pixelWidth && py < pixelHeight
+					&& (isPixelClear(px, py) || depthEnabled && tileDepth[tileIndexFromPixelXY(px, py, tileWidthBits)] >= nearDepth);
+		} else {
+			return isQuadPartiallyClear();
+		}
+	}
+
+	final boolean isHexagonPartiallyOccluded(int v0, int v1, int v2, int v3, int v4, int v5) {
+		final int bounds = prepareHexagon(v0, v1, v2, v3, v4, v5);
+
+		if (bounds == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
+			return false;
+		} else if (bounds == BOUNDS_CONCAVE) {
+			return isQuadPartiallyOccluded(v0, v1, v2, v3) || isQuadPartiallyOccluded(v3, v4, v5, v0);
+		}
+
+		final int px = minPixelX;
+		final int py = minPixelY;
+
+		if (px == maxPixelX && py == maxPixelY) {
+			return px >= 0 && py >= 0 && px < pixelWidth && py < pixelHeight
+					&& isPixelSet(px, py) && !(depthEnabled && tileDepth[tileIndexFromPixelXY(px, py, tileWidthBits)] >= nearDepth);
+		} else {
+			return isQuadPartiallyOccluded();
+		}
+	}
+
+	/**
+	 * Same as {@link #isQuadPartiallyClear(int, int, int, int)} but also draws the quad
+	 * when it is partially clear, without preparing bounds and events a second time.
+	 * Tests and draws in a single tile walk unless depth or inner coverage is enabled,
+	 * because then drawn coverage and depth differ from what is tested, or draws are
+	 * deferred or parallel.
+	 */
+	final boolean testAndDrawQuad(int v0, int v1, int v2, int v3) {
+		if (prepareBounds(v0, v1, v2, v3) == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
+			return false;
+		}
+
+		if (depthEnabled) {
+			prepareDepth(v0, v1, v2, v3);
+		}
+
+		return testAndDraw();
+	}
+
+	/** Same as {@link #testAndDrawQuad(int, int, int, int)} for hexagons. */
+	final boolean testAndDrawHexagon(int v0, int v1, int v2, int v3, int v4, int v5) {
+		final int bounds = prepareHexagon(v0, v1, v2, v3, v4, v5);
+
+		if (bounds == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
+			return false;
+		} else if (bounds == BOUNDS_CONCAVE) {
+			if (isQuadPartiallyClear(v0, v1, v2, v3) || isQuadPartiallyClear(v3, v4, v5, v0)) {
+				drawQuad(v0, v1, v2, v3);
+				drawQuad(v3, v4, v5, v0);
+				return true;
+			} else {
+				return false;
+			}
+		}
+
+		return testAndDraw();
+	}
+
+	private boolean testAndDraw() {
+		final int px = minPixelX;
+		final int py = minPixelY;
+
+		// Single points are tested but not drawn, same as separate test and draw
+		if (px == maxPixelX && py == maxPixelY) {
+			return px >= 0 && py >= 0 && px < pixelWidth && py < pixelHeight
+					&& (isPixelClear(px, py) || depthEnabled && tileDepth[tileIndexFromPixelXY(px, py, tileWidthBits)] >= nearDepth);
+		}
+
+		if (depthEnabled || innerCoverage || drawBatch != null) {
+			if (isQuadPartiallyClear()) {
+				drawQuad();
+				return true;
+			} else {
+				return false;
+			}
+		}
+
+		return drawQuad();
+	}
+
+	private int prepareHexagon(int v0, int v1, int v2, int v3, int v4, int v5) {
+		final int[] vertices = polygonVertices;
+		vertices[0] = v0;
+		vertices[1] = v1;
+		vertices[2] = v2;
+		vertices[3] = v3;
+		vertices[4] = v4;
+		vertices[5] = v5;
+
+		final int bounds = preparePolygonBounds(6);
+
+		if (bounds != BOUNDS_IN) {
+			return bounds;
+		}
+
+		if (depthEnabled) {
+			nearDepth = Float.POSITIVE_INFINITY;
+			farDepth = Float.NEGATIVE_INFINITY;
+
+			for (int i = 0; i < 6; ++i) {
+				includeDepth(vertices[i]);
+			}
+		}
+
+		return BOUNDS_IN;
+	}
+
+	/**
+	 * Walks super blocks, blocks and tiles within the current bounds, skipping
+	 * any that are already known to be fully occluded.  When depth is enabled,
+	 * occluders not in front of the quad count as clear.
+	 */
+	final boolean isQuadPartiallyClear() {
+		if (smallShape) {
+			return isSmallShapePartiallyClear();
+		}
+
+		flushDraws(minPixelX, minPixelY, maxPixelX, maxPixelY);
+
+		final int minTileX = minPixelX >> TILE_AXIS_SHIFT;
+		final int minTileY = minPixelY >> TILE_AXIS_SHIFT;
+		final int maxTileX = maxPixelX >> TILE_AXIS_SHIFT;
+		final int maxTileY = maxPixelY >> TILE_AXIS_SHIFT;
+		final int minBlockX = minTileX >> BLOCK_AXIS_SHIFT;
+		final int minBlockY = minTileY >> BLOCK_AXIS_SHIFT;
+		final int maxBlockX = maxTileX >> BLOCK_AXIS_SHIFT;
+		final int maxBlockY = maxTileY >> BLOCK_AXIS_SHIFT;
+		final long[] fullTiles = this.fullTiles;
+		final long[] fullBlocks = this.fullBlocks;
+		final boolean depthEnabled = this.depthEnabled;
+		final float nearDepth = this.nearDepth;
+
+		for (int superY = minBlockY >> BLOCK_AXIS_SHIFT; superY <= maxBlockY >> BLOCK_AXIS_SHIFT; ++superY) {
+			final int superBaseY = superY << BLOCK_AXIS_SHIFT;
+
+			for (int superX = minBlockX >> BLOCK_AXIS_SHIFT; superX <= maxBlockX >> BLOCK_AXIS_SHIFT; ++superX) {
+				final int superBaseX = superX << BLOCK_AXIS_SHIFT;
+				final int superIndex = superX | (superY << superBlockWidthBits);
+				final long fullSuper = depthEnabled && superBlockDepth[superIndex] >= nearDepth ? 0 : fullBlocks[superIndex];
+				long blocks = Indexer.rectMask(minBlockX - superBaseX, minBlockY - superBaseY, maxBlockX - superBaseX, maxBlockY - superBaseY)
+						& ~fullSuper;
+
+				while (blocks != 0) {
+					final int blockBit = Long.numberOfTrailingZeros(blocks);
+					blocks &= blocks - 1;
+
+					final int tileBaseX = (superBaseX | (blockBit & 7)) << BLOCK_AXIS_SHIFT;
+					final int tileBaseY = (superBaseY | (blockBit >> 3)) << BLOCK_AXIS_SHIFT;
+					final int blockIndex = (tileBaseX >> BLOCK_AXIS_SHIFT) | ((tileBaseY >> BLOCK_AXIS_SHIFT) << blockWidthBits);
+					final long fullBlock = depthEnabled && blockDepth[blockIndex] >= nearDepth ? 0 : fullTiles[blockIndex];
+					long candidates = Indexer.rectMask(minTileX - tileBaseX, minTileY - tileBaseY, maxTileX - tileBaseX, maxTileY - tileBaseY)
+							& ~fullBlock;
+
+					while (candidates != 0) {
+						final int tileBit = Long.numberOfTrailingZeros(candidates);
+						candidates &= candidates - 1;
+
+						final int tileX = tileBaseX | (tileBit & 7);
+						final int tileY = tileBaseY | (tileBit >> 3);
+						final int tileIndex = Indexer.tileIndex(tileX, tileY, tileWidthBits);
+						final long word = depthEnabled && tileDepth[tileIndex] >= nearDepth ? 0 : tile(tileIndex);
+
+						if ((~word & computeTileCoverage(tileX, tileY)) != 0) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * True if every tile overlapping the given precise screen bounds is full and, when depth is enabled,
+	 * nearer than nearDepth.  Checks only summaries, never tile words or edges.  Whole tiles include every
+	 * pixel an exact test of a shape within the bounds could find clear, so this never reports occlusion
+	 * the exact test would not.  False when the bounds are off screen.
+	 */
+	final boolean isRectOccluded(int minX, int minY, int maxX, int maxY, float nearDepth) {
+		if (maxY <= 0 || minY >= preciseHeight || maxX <= 0 || minX >= preciseWidth) {
+			return false;
+		}
+
+		// same clamping and rounding as bounds of shapes
+		minX = Math.min(Math.max(minX, 0), preciseWidthClamp);
+		minY = Math.min(Math.max(minY, 0), preciseHeightClamp);
+		maxX = Math.min(maxX, preciseWidthClamp);
+		maxY = Math.min(maxY, preciseHeightClamp);
+
+		final int minPixelX = (minX + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS;
+		final int minPixelY = (minY + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS;
+		final int maxPixelX = (maxX + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS;
+		final int maxPixelY = (maxY + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS;
+
+		flushDraws(minPixelX, minPixelY, maxPixelX, maxPixelY);
+
+		final int minTileX = minPixelX >> TILE_AXIS_SHIFT;
+		final int minTileY = minPixelY >> TILE_AXIS_SHIFT;
+		final int maxTileX = maxPixelX >> TILE_AXIS_SHIFT;
+		final int maxTileY = maxPixelY >> TILE_AXIS_SHIFT;
+		final int minBlockX = minTileX >> BLOCK_AXIS_SHIFT;
+		final int minBlockY = minTileY >> BLOCK_AXIS_SHIFT;
+		final int maxBlockX = maxTileX >> BLOCK_AXIS_SHIFT;
+		final int maxBlockY = maxTileY >> BLOCK_AXIS_SHIFT;
+		final boolean depthEnabled = this.depthEnabled;
+
+		for (int superY = minBlockY >> BLOCK_AXIS_SHIFT; superY <= maxBlockY >> BLOCK_AXIS_SHIFT; ++superY) {
+			final int superBaseY = superY << BLOCK_AXIS_SHIFT;
+
+			for (int superX = minBlockX >> BLOCK_AXIS_SHIFT; superX <= maxBlockX >> BLOCK_AXIS_SHIFT; ++superX) {
+				final int superBaseX = superX << BLOCK_AXIS_SHIFT;
+				final int superIndex = superX | (superY << superBlockWidthBits);
+				long blocks = Indexer.rectMask(minBlockX - superBaseX, minBlockY - superBaseY, maxBlockX - superBaseX, maxBlockY - superBaseY);
+
+				// full blocks can be accepted as a group unless some may be behind
+				if (!depthEnabled || superBlockDepth[superIndex] < nearDepth) {
+					blocks &= ~fullBlocks[superIndex];
+				}
+
+				while (blocks != 0) {
+					final int blockBit = Long.numberOfTrailingZeros(blocks);
+					blocks &= blocks - 1;
+
+					final int tileBaseX = (superBaseX | (blockBit & 7)) << BLOCK_AXIS_SHIFT;
+					final int tileBaseY = (superBaseY | (blockBit >> 3)) << BLOCK_AXIS_SHIFT;
+					final int blockIndex = (tileBaseX >> BLOCK_AXIS_SHIFT) | ((tileBaseY >> BLOCK_AXIS_SHIFT) << blockWidthBits);
+					long tiles = Indexer.rectMask(minTileX - tileBaseX, minTileY - tileBaseY, maxTileX - tileBaseX, maxTileY - tileBaseY);
+
+					if ((tiles & ~fullTiles[blockIndex]) != 0) {
+						return false;
+					}
+
+					if (depthEnabled && blockDepth[blockIndex] >= nearDepth) {
+						while (tiles != 0) {
+							final int tileBit = Long.numberOfTrailingZeros(tiles);
+							tiles &= tiles - 1;
+
+							if (tileDepth[Indexer.tileIndex(tileBaseX | (tileBit & 7), tileBaseY | (tileBit >> 3), tileWidthBits)] >= nearDepth) {
+								return false;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Updates far depth of a tile to account for new coverage from a shape with the given
+	 * far depth and returns the new depth.  Keeps a single conservative depth per tile: new full
+	 * coverage can pull the depth nearer but partial coverage can only push it farther.
+	 */
+	private float mergeDepth(int tileIndex, long oldWord, long coverage, float farDepth) {
+		final float oldDepth = tileDepth[tileIndex];
+		final float newDepth;
+
+		if (oldWord == 0) {
+			newDepth = farDepth;
+		} else if (coverage == -1L) {
+			newDepth = oldWord == -1L ? Math.min(oldDepth, farDepth) : farDepth;
+		} else if (oldWord == -1L) {
+			newDepth = oldDepth;
+		} else {
+			newDepth = Math.max(oldDepth, farDepth);
+		}
+
+		tileDepth[tileIndex] = newDepth;
+		return newDepth;
+	}
+
+	/**
+	 * Computes conservative depth range of the quad from normalized vertex depth.
+	 * Vertices clipped by the near plane make the near depth zero and do not
+	 * contribute to far depth.
+	 */
+	private void prepareDepth(int v0, int v1, int v2, int v3) {
+		nearDepth = Float.POSITIVE_INFINITY;
+		farDepth = Float.NEGATIVE_INFINITY;
+		includeDepth(v0);
+		includeDepth(v1);
+		includeDepth(v2);
+		includeDepth(v3);
+	}
+
+	private void prepareDepth(int v0, int v1, int v2) {
+		nearDepth = Float.POSITIVE_INFINITY;
+		farDepth = Float.NEGATIVE_INFINITY;
+		includeDepth(v0);
+		includeDepth(v1);
+		includeDepth(v2);
+	}
+
+	private void includeDepth(int baseIndex) {
+		if (needsNearClip(baseIndex) == 0) {
+			final float depth = Float.intBitsToFloat(vertexData[baseIndex + PV_Z]) / Float.intBitsToFloat(vertexData[baseIndex + PV_W]);
+			nearDepth = Math.min(nearDepth, depth);
+			farDepth = Math.max(farDepth, depth);
+		} else {
+			// clipped portion of the quad is at the near plane
+			nearDepth = Math.min(nearDepth, 0);
+		}
+	}
+
+	final boolean isQuadPartiallyOccluded(int v0, int v1, int v2, int v3) {
+		if (prepareBounds(v0, v1, v2, v3) == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
+			return false;
+		}
+
+		if (depthEnabled) {
+			prepareDepth(v0, v1, v2, v3);
+		}
+
+		final int px = minPixelX;
+		final int py = minPixelY;
+
+		if (px == maxPixelX && py == maxPixelY) {
+			return px >= 0 && py >= 0 && px < pixelWidth && py < pixelHeight
+					&& isPixelSet(px, py) && !(depthEnabled && tileDepth[tileIndexFromPixelXY(px, py, tileWidthBits)] >= nearDepth);
+		} else {
+			return isQuadPartiallyOccluded();
+		}
+	}
+
+	final boolean isTrianglePartiallyOccluded(int v0, int v1, int v2) {
+		if (prepareTriangleBounds(v0, v1, v2) == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
+			return false;
+		}
+
+		if (depthEnabled) {
+			prepareDepth(v0, v1, v2);
+		}
+
+		final int px = minPixelX;
+		final int py = minPixelY;
+
+		if (px == maxPixelX && py == maxPixelY) {
+			return px >= 0 && py >= 0 && px < pixelWidth && py < pixelHeight
+					&& isPixelSet(px, py) && !(depthEnabled && tileDepth[tileIndexFromPixelXY(px, py, tileWidthBits)] >= nearDepth);
+		} else {
+			return isQuadPartiallyOccluded();
+		}
+	}
+
+	/**
+	 * Walks super blocks, blocks and tiles within the current bounds, skipping
+	 * any that are known to have no occlusion.  When depth is enabled, only
+	 * occluders in front of the quad are considered.
+	 */
+	final boolean isQuadPartiallyOccluded() {
+		if (smallShape) {
+			return isSmallShapePartiallyOccluded();
+		}
+
+		flushDraws(minPixelX, minPixelY, maxPixelX, maxPixelY);
+
+		final int minTileX = minPixelX >> TILE_AXIS_SHIFT;
+		final int minTileY = minPixelY >> TILE_AXIS_SHIFT;
+		final int maxTileX = maxPixelX >> TILE_AXIS_SHIFT;
+		final int maxTileY = maxPixelY >> TILE_AXIS_SHIFT;
+		final int minBlockX = minTileX >> BLOCK_AXIS_SHIFT;
+		final int minBlockY = minTileY >> BLOCK_AXIS_SHIFT;
+		final int maxBlockX = maxTileX >> BLOCK_AXIS_SHIFT;
+		final int maxBlockY = maxTileY >> BLOCK_AXIS_SHIFT;
+		final long[] setTiles = this.setTiles;
+		final long[] setBlocks = this.setBlocks;
+		final boolean depthEnabled = this.depthEnabled;
+		final float nearDepth = this.nearDepth;
+
+		for (int superY = minBlockY >> BLOCK_AXIS_SHIFT; superY <= maxBlockY >> BLOCK_AXIS_SHIFT; ++superY) {
+			final int superBaseY = superY << BLOCK_AXIS_SHIFT;
+
+			for (int superX = minBlockX >> BLOCK_AXIS_SHIFT; superX <= maxBlockX >> BLOCK_AXIS_SHIFT; ++superX) {
+				final int superBaseX = superX << BLOCK_AXIS_SHIFT;
+				long blocks = Indexer.rectMask(minBlockX - superBaseX, minBlockY - superBaseY, maxBlockX - superBaseX, maxBlockY - superBaseY)
+						& setBlocks[superX | (superY << superBlockWidthBits)];
+
+				while (blocks != 0) {
+					final int blockBit = Long.numberOfTrailingZeros(blocks);
+					blocks &= blocks - 1;
+
+					final int tileBaseX = (superBaseX | (blockBit & 7)) << BLOCK_AXIS_SHIFT;
+					final int tileBaseY = (superBaseY | (blockBit >> 3)) << BLOCK_AXIS_SHIFT;
+					final int blockIndex = (tileBaseX >> BLOCK_AXIS_SHIFT) | ((tileBaseY >> BLOCK_AXIS_SHIFT) << blockWidthBits);
+					long candidates = Indexer.rectMask(minTileX - tileBaseX, minTileY - tileBaseY, maxTileX - tileBaseX, maxTileY - tileBaseY)
+							& setTiles[blockIndex];
+
+					while (candidates != 0) {
+						final int tileBit = Long.numberOfTrailingZeros(candidates);
+						candidates &= candidates - 1;
+
+						final int tileX = tileBaseX | (tileBit & 7);
+						final int tileY = tileBaseY | (tileBit >> 3);
+						final int tileIndex = Indexer.tileIndex(tileX, tileY, tileWidthBits);
+
+						if (depthEnabled && tileDepth[tileIndex] >= nearDepth) {
+							continue;
+						}
+
+						if ((tile(tileIndex) & computeTileCoverage(tileX, tileY)) != 0) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Draws the current quad, or adds it to {@link #drawBatch} to be drawn later when draws are deferred or parallel.
+	 *
+	 * <p>Returns true if any pixel was not already set. Without depth or inner coverage,
+	 * this is the same result {@link #isQuadPartiallyClear()} would have given before drawing.
+	 * Always false when the quad is only added to the batch.
+	 */
+	final boolean drawQuad() {
+		if (innerCoverage) {
+			erodeEvents();
+		}
+
+		if (drawBatch != null) {
+			if (!drawBatch.add(this)) {
+				flushDraws();
+				drawBatch.add(this);
+			}
+
+			return false;
+		}
+
+		if (smallShape) {
+			return drawSmallShape() != 0;
+		}
+
+		return drawTiles(eventData, 0, minPixelX >> TILE_AXIS_SHIFT, minPixelY >> TILE_AXIS_SHIFT,
+				maxPixelX >> TILE_AXIS_SHIFT, maxPixelY >> TILE_AXIS_SHIFT, farDepth, true) != 0;
+	}
+
+	/**
+	 * Same as {@link #isQuadPartiallyClear()} for a shape in {@link #smallCoverage}.
+	 * Few enough tiles that checking each is faster than walking summaries.
+	 */
+	private boolean isSmallShapePartiallyClear() {
+		final int minTileX = minPixelX >> TILE_AXIS_SHIFT;
+		final int minTileY = minPixelY >> TILE_AXIS_SHIFT;
+		final int maxTileX = maxPixelX >> TILE_AXIS_SHIFT;
+		final int maxTileY = maxPixelY >> TILE_AXIS_SHIFT;
+
+		for (int tileY = minTileY; tileY <= maxTileY; ++tileY) {
+			for (int tileX = minTileX; tileX <= maxTileX; ++tileX) {
+				final long coverage = smallCoverage[((tileY - minTileY) << 1) | (tileX - minTileX)];
+
+				if (coverage != 0) {
+					final int tileIndex = Indexer.tileIndex(tileX, tileY, tileWidthBits);
+					final long word = depthEnabled && tileDepth[tileIndex] >= nearDepth ? 0 : tile(tileIndex);
+
+					if ((~word & coverage) != 0) {
+						return true;
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/** Same as {@link #isQuadPartiallyOccluded()} for a shape in {@link #smallCoverage}. */
+	private boolean isSmallShapePartiallyOccluded() {
+		final int minTileX = minPixelX >> TILE_AXIS_SHIFT;
+		final int minTileY = minPixelY >> TILE_AXIS_SHIFT;
+		final int maxTileX = maxPixelX >> TILE_AXIS_SHIFT;
+		final int maxTileY = maxPixelY >> TILE_AXIS_SHIFT;
+
+		for (int tileY = minTileY; tileY <= maxTileY; ++tileY) {
+			for (int tileX = minTileX; tileX <= maxTileX; ++tileX) {
+				final long coverage = smallCoverage[((tileY - minTileY) << 1) | (tileX - minTileX)];
+
+				if (coverage != 0) {
+					final int tileIndex = Indexer.tileIndex(tileX, tileY, tileWidthBits);
+
+					if ((tile(tileIndex) & coverage) != 0 && !(depthEnabled && tileDepth[tileIndex] >= nearDepth)) {
+						return true;
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Same as {@link #drawTiles} for a shape in {@link #smallCoverage}, updating summaries tile by tile.
+	 * Full tiles that are already at least as near as the shape are left alone, as drawTiles would.
+	 */
+	private long drawSmallShape() {
+		final int minTileX = minPixelX >> TILE_AXIS_SHIFT;
+		final int minTileY = minPixelY >> TILE_AXIS_SHIFT;
+		final int maxTileX = maxPixelX >> TILE_AXIS_SHIFT;
+		final int maxTileY = maxPixelY >> TILE_AXIS_SHIFT;
+		final boolean depthEnabled = this.depthEnabled;
+		long added = 0;
+
+		for (int tileY = minTileY; tileY <= maxTileY; ++tileY) {
+			for (int tileX = minTileX; tileX <= maxTileX; ++tileX) {
+				final long coverage = smallCoverage[((tileY - minTileY) << 1) | (tileX - minTileX)];
+
+				if (coverage == 0) {
+					continue;
+				}
+
+				final int tileIndex = Indexer.tileIndex(tileX, tileY, tileWidthBits);
+				final long oldWord = tile(tileIndex);
+
+				if (oldWord == -1L && !(depthEnabled && tileDepth[tileIndex] > farDepth)) {
+					continue;
+				}
+
+				final int blockIndex = (tileX >> BLOCK_AXIS_SHIFT) | ((tileY >> BLOCK_AXIS_SHIFT) << blockWidthBits);
+				final int superIndex = (tileX >> (BLOCK_AXIS_SHIFT * 2)) | ((tileY >> (BLOCK_AXIS_SHIFT * 2)) << superBlockWidthBits);
+				final long tileBit = Indexer.pixelMask(tileX, tileY);
+				final long blockBit = Indexer.pixelMask(tileX >> BLOCK_AXIS_SHIFT, tileY >> BLOCK_AXIS_SHIFT);
+
+				if (depthEnabled) {
+					final float depth = mergeDepth(tileIndex, oldWord, coverage, farDepth);
+
+					if (depth > blockDepth[blockIndex]) {
+						blockDepth[blockIndex] = depth;
+
+						if (depth > superBlockDepth[superIndex]) {
+							superBlockDepth[superIndex] = depth;
+						}
+					}
+				}
+
+				final long word = oldWord | coverage;
+				added |= coverage & ~oldWord;
+				setTile(tileIndex, word);
+				setTiles[blockIndex] |= tileBit;
+				setBlocks[superIndex] |= blockBit;
+
+				if (word == -1L) {
+					if (oldWord != -1L) {
+						++fullTileCount;
+					}
+
+					if ((fullTiles[blockIndex] |= tileBit) == -1L) {
+						fullBlocks[superIndex] |= blockBit;
+					}
+				}
+			}
+		}
+
+		return added;
+	}
+
+	/**
+	 * Walks super blocks, blocks and tiles within the given tile bounds, skipping
+	 * any that are already fully occluded, and updates summary bits to match.
+	 * When depth is enabled, fully occluded regions are skipped only if they are
+	 * already at least as near as the shape.  Events of a row are found at
+	 * eventOffset + (row << 1) so that shapes kept in a {@link DrawBatch} can be drawn.
+	 *
+	 * <p>When summarize is false, super block summaries and {@link #fullTileCount} are left
+	 * alone so that different rows of blocks can be drawn at the same time on different
+	 * threads. The caller must then update them with {@link #summarizeBlocks()}.
+	 *
+	 * <p>Returns bits of pixels that were not already set, combined across tiles.
+	 */
+	private long drawTiles(int[] events, int eventOffset, int minTileX, int minTileY, int maxTileX, int maxTileY, float farDepth, boolean summarize) {
+		final int minBlockX = minTileX >> BLOCK_AXIS_SHIFT;
+		final int minBlockY = minTileY >> BLOCK_AXIS_SHIFT;
+		final int maxBlockX = maxTileX >> BLOCK_AXIS_SHIFT;
+		final int maxBlockY = maxTileY >> BLOCK_AXIS_SHIFT;
+		final long[] fullTiles = this.fullTiles;
+		final long[] setTiles = this.setTiles;
+		final boolean depthEnabled = this.depthEnabled;
+		long added = 0;
+
+		for (int superY = minBlockY >> BLOCK_AXIS_SHIFT; superY <= maxBlockY >> BLOCK_AXIS_SHIFT; ++superY) {
+			final int superBaseY = superY << BLOCK_AXIS_SHIFT;
+
+			for (int superX = minBlockX >> BLOCK_AXIS_SHIFT; superX <= maxBlockX >> BLOCK_AXIS_SHIFT; ++superX) {
+				final int superBaseX = superX << BLOCK_AXIS_SHIFT;
+				final int superIndex = superX | (superY << superBlockWidthBits);
+				// super block depth is stale while bands are drawn, so only trust it when summarizing
+				final long fullSuper = depthEnabled && (!summarize || superBlockDepth[superIndex] > farDepth) ? 0 : fullBlocks[superIndex];
+				long blocks = Indexer.rectMask(minBlockX - superBaseX, minBlockY - superBaseY, maxBlockX - superBaseX, maxBlockY - superBaseY)
+						& ~fullSuper;
+				long fullBlockBits = 0;
+				long setBlockBits = 0;
+				float superDepth = Float.NEGATIVE_INFINITY;
+
+				while (blocks != 0) {
+					final int blockBit = Long.numberOfTrailingZeros(blocks);
+					blocks &= blocks - 1;
+
+					final int tileBaseX = (superBaseX | (blockBit & 7)) << BLOCK_AXIS_SHIFT;
+					final int tileBaseY = (superBaseY | (blockBit >> 3)) << BLOCK_AXIS_SHIFT;
+					final int blockIndex = (tileBaseX >> BLOCK_AXIS_SHIFT) | ((tileBaseY >> BLOCK_AXIS_SHIFT) << blockWidthBits);
+					long full = fullTiles[blockIndex];
+					long set = setTiles[blockIndex];
+					final long fullBlock = depthEnabled && blockDepth[blockIndex] > farDepth ? 0 : full;
+					long candidates = Indexer.rectMask(minTileX - tileBaseX, minTileY - tileBaseY, maxTileX - tileBaseX, maxTileY - tileBaseY) & ~fullBlock;
+					float depth = Float.NEGATIVE_INFINITY;
+
+					while (candidates != 0) {
+						final int tileBit = Long.numberOfTrailingZeros(candidates);
+						candidates &= candidates - 1;
+
+						final int tileX = tileBaseX | (tileBit & 7);
+						final int tileY = tileBaseY | (tileBit >> 3);
+						final int tileIndex = Indexer.tileIndex(tileX, tileY, tileWidthBits);
+						final long coverage = computeTileCoverage(events, eventOffset + (tileY << (TILE_AXIS_SHIFT + 1)), tileX << TILE_AXIS_SHIFT);
+
+						if (coverage != 0) {
+							final long oldWord = tile(tileIndex);
+
+							if (depthEnabled) {
+								depth = Math.max(depth, mergeDepth(tileIndex, oldWord, coverage, farDepth));
+							}
+
+							final long word = oldWord | coverage;
+							added |= coverage & ~oldWord;
+							setTile(tileIndex, word);
+							set |= 1L << tileBit;
+
+							if (word == -1L) {
+								full |= 1L << tileBit;
+
+								// full tiles are only revisited when depth is enabled
+								if (oldWord != -1L && summarize) {
+									++fullTileCount;
+								}
+							}
+						}
+					}
+
+					fullTiles[blockIndex] = full;
+					setTiles[blockIndex] = set;
+
+					if (depthEnabled && depth > blockDepth[blockIndex]) {
+						blockDepth[blockIndex] = depth;
+						superDepth = Math.max(superDepth, depth);
+					}
+
+					if (full == -1L) {
+						fullBlockBits |= 1L << blockBit;
+					}
+
+					if (set != 0) {
+						setBlockBits |= 1L << blockBit;
+					}
+				}
+
+				if (summarize) {
+					fullBlocks[superIndex] |= fullBlockBits;
+					setBlocks[superIndex] |= setBlockBits;
+
+					if (depthEnabled && superDepth > superBlockDepth[superIndex]) {
+						superBlockDepth[superIndex] = superDepth;
+					}
+				}
+			}
+		}
+
+		return added;
+	}
+
+	/**
+	 * When true, prepared shapes are kept in {@link #drawBatch} and drawn block by block
+	 * when a test needs them.  Anything pending is drawn first when this changes.
+	 * See {@link BoxOccluder#deferredDrawing(boolean)}.
+	 */
+	final void deferDraws(boolean defer) {
+		deferDraws = defer;
+		updateDrawBatch();
+	}
+
+	/**
+	 * Prepared shapes are drawn on the given pool, or on the calling thread when null.
+	 * Anything pending is drawn first.  See {@link BoxOccluder#parallelDrawing(ForkJoinPool)}.
+	 */
+	final void drawInParallel(ForkJoinPool pool) {
+		drawPool = pool;
+		updateDrawBatch();
+	}
+
+	private void updateDrawBatch() {
+		flushDraws();
+
+		if (!deferDraws && drawPool == null) {
+			drawBatch = null;
+		} else if (drawBatch == null) {
+			drawBatch = new DrawBatch(this);
+		}
+	}
+
+	/**
+	 * Draws shapes added to {@link #drawBatch} since the last flush, one block at a time so that
+	 * tiles being written stay in cache.  Shapes are drawn in the order they were added within
+	 * each block, which makes the result, including depth, the same as drawing each shape when
+	 * it was prepared.
+	 *
+	 * <p>With a draw pool, each row of blocks is drawn by a separate task, so tasks never write
+	 * the same tile or block summary. Sparse tiles share a pool of tile arrays between blocks
+	 * and so are always drawn on the calling thread.
+	 */
+	final void flushDraws() {
+		final DrawBatch batch = drawBatch;
+
+		if (batch == null || batch.shapeCount == 0) {
+			return;
+		}
+
+		if (drawPool == null || sparseTiles || batch.shapeCount < PARALLEL_DRAW_MIN_SHAPES) {
+			final long[] pendingBlocks = batch.pendingBlocks;
+			final int superBlockWidthMask = (1 << superBlockWidthBits) - 1;
+
+			for (int superIndex = 0; superIndex < superBlockCount; ++superIndex) {
+				long blocks = pendingBlocks[superIndex];
+
+				if (blocks == 0) {
+					continue;
+				}
+
+				final int superBaseX = (superIndex & superBlockWidthMask) << BLOCK_AXIS_SHIFT;
+				final int superBaseY = (superIndex >> superBlockWidthBits) << BLOCK_AXIS_SHIFT;
+
+				while (blocks != 0) {
+					final int blockBit = Long.numberOfTrailingZeros(blocks);
+					blocks &= blocks - 1;
+					drawBatchBlock(batch, (superBaseX | (blockBit & 7)) | ((superBaseY | (blockBit >> 3)) << blockWidthBits), true);
+				}
+			}
+		} else {
+			drawPool.invoke(new BandDraw(batch, 0, (tileHeight - 1) >> BLOCK_AXIS_SHIFT));
+			summarizeBlocks();
+		}
+
+		batch.clear();
+	}
+
+	/** Same as {@link #flushDraws()} but only if a pending shape is in a block that overlaps the given pixel bounds. */
+	private void flushDraws(int minPixelX, int minPixelY, int maxPixelX, int maxPixelY) {
+		final DrawBatch batch = drawBatch;
+
+		if (batch != null && batch.shapeCount != 0 && batch.overlaps(minPixelX, minPixelY, maxPixelX, maxPixelY)) {
+			flushDraws();
 		}
+	}
 
-		drawQuad();
+	/** Draws the part of each shape binned in the given block that is inside the block. */
+	private void drawBatchBlock(DrawBatch batch, int blockIndex, boolean summarize) {
+		final int[] shapes = batch.shapes;
+		final int[] entryShapes = batch.entryShapes;
+		final int[] entryNext = batch.entryNext;
+		final int blockMinTileX = (blockIndex & ((1 << blockWidthBits) - 1)) << BLOCK_AXIS_SHIFT;
+		final int blockMinTileY = (blockIndex >> blockWidthBits) << BLOCK_AXIS_SHIFT;
+
+		for (int entry = batch.binHeads[blockIndex]; entry != -1; entry = entryNext[entry]) {
+			final int base = entryShapes[entry] * DrawBatch.SHAPE_STRIDE;
+
+			drawTiles(batch.events, shapes[base + DrawBatch.SHAPE_EVENT_OFFSET],
+					Math.max(shapes[base + DrawBatch.SHAPE_MIN_X] >> TILE_AXIS_SHIFT, blockMinTileX),
+					Math.max(shapes[base + DrawBatch.SHAPE_MIN_Y] >> TILE_AXIS_SHIFT, blockMinTileY),
+					Math.min(shapes[base + DrawBatch.SHAPE_MAX_X] >> TILE_AXIS_SHIFT, blockMinTileX + 7),
+					Math.min(shapes[base + DrawBatch.SHAPE_MAX_Y] >> TILE_AXIS_SHIFT, blockMinTileY + 7),
+					Float.intBitsToFloat(shapes[base + DrawBatch.SHAPE_FAR_DEPTH]), summarize);
+		}
 	}
 
-	final boolean isQuadPartiallyClear(int v0, int v1, int v2, int v3) {
-		if (prepareBounds(v0, v1, v2, v3) == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
-			return false;
+	/** Draws all batched shapes in a range of block rows, splitting the range until each task has one row. */
+	@SuppressWarnings("serial")
+	private final class BandDraw extends RecursiveAction {
+		private final DrawBatch batch;
+		private final int minBlockY, maxBlockY;
+
+		private BandDraw(DrawBatch batch, int minBlockY, int maxBlockY) {
+			this.batch = batch;
+			this.minBlockY = minBlockY;
+			this.maxBlockY = maxBlockY;
 		}
 
-		final int px = minPixelX;
-		final int py = minPixelY;
+		@Override
+		protected void compute() {
+			if (minBlockY == maxBlockY) {
+				final int firstBlockIndex = minBlockY << blockWidthBits;
+				final int limit = firstBlockIndex + (1 << blockWidthBits);
 
-		if (px == maxPixelX && py == maxPixelY) {
-			return px >= 0 && py >= 0 && px < PIXEL_WIDTH && py < PIXEL_HEIGHT && isPixelClear(px, py);
-		} else {
-			return isQuadPartiallyClear();
+				for (int blockIndex = firstBlockIndex; blockIndex < limit; ++blockIndex) {
+					drawBatchBlock(batch, blockIndex, false);
+				}
+			} else {
+				final int midBlockY = (minBlockY + maxBlockY) >> 1;
+				invokeAll(new BandDraw(batch, minBlockY, midBlockY), new BandDraw(batch, midBlockY + 1, maxBlockY));
+			}
 		}
 	}
 
-	final boolean isQuadPartiallyClear() {
-		final int minTileX = minPixelX >> TILE_AXIS_SHIFT;
-		final int maxTileX = maxPixelX >> TILE_AXIS_SHIFT;
-		final int maxTileY = (maxPixelY >> TILE_AXIS_SHIFT) << TILE_WIDTH_BITS;
-		final long[] tiles = this.tiles;
+	/**
+	 * Brings super block summaries and {@link #fullTileCount} up to date with block summaries
+	 * after drawing without summarizing.  Only adds to super block summaries because blocks
+	 * are never cleared by drawing.
+	 */
+	private void summarizeBlocks() {
+		final long[] fullTiles = this.fullTiles;
+		final long[] setTiles = this.setTiles;
+		final int blockWidthMask = (1 << blockWidthBits) - 1;
+		int fullCount = 0;
+
+		for (int blockIndex = 0; blockIndex < blockCount; ++blockIndex) {
+			final long full = fullTiles[blockIndex];
+			fullCount += Long.bitCount(full);
+
+			if (setTiles[blockIndex] == 0) {
+				continue;
+			}
 
-		int tileIndex = tileIndexFromPixelXY(minPixelX, minPixelY);
-		int xLimit = maxTileX;
-		int xInc = 1;
+			final int blockX = blockIndex & blockWidthMask;
+			final int blockY = blockIndex >> blockWidthBits;
+			final int superIndex = (blockX >> BLOCK_AXIS_SHIFT) | ((blockY >> BLOCK_AXIS_SHIFT) << superBlockWidthBits);
+			final long blockBit = Indexer.pixelMask(blockX, blockY);
 
-		while (true) {
-			final long word = tiles[tileIndex];
+			setBlocks[superIndex] |= blockBit;
 
-			if (word != -1L && (~word & computeTileCoverage(tileIndex)) != 0) {
-				return true;
+			if (full == -1L) {
+				fullBlocks[superIndex] |= blockBit;
 			}
 
-			if ((tileIndex & TILE_WIDTH_MASK) == xLimit) {
-				if ((tileIndex & TILE_HEIGHT_MASK) == maxTileY) {
-					return false;
-				} else {
-					// move up
-					tileIndex += TILE_WIDTH;
-					// flip x order
-					xLimit = xLimit == maxTileX ? minTileX : maxTileX;
-					xInc = -xInc;
-				}
-			} else {
-				// move left or right
-				tileIndex += xInc;
+			if (depthEnabled && blockDepth[blockIndex] > superBlockDepth[superIndex]) {
+				superBlockDepth[superIndex] = blockDepth[blockIndex];
 			}
 		}
+
+		// padding bits are set in every block of the last row
+		fullTileCount = fullCount - Long.bitCount(lastBlockRowPadding) * (1 << blockWidthBits);
 	}
 
-	final boolean isQuadPartiallyOccluded(int v0, int v1, int v2, int v3) {
-		if (prepareBounds(v0, v1, v2, v3) == BOUNDS_OUTSIDE_OR_TOO_SMALL) {
-			return false;
+	/**
+	 * Replaces all content with the pixels of source that are not set in exclude, moved by dx, dy
+	 * pixels and then eroded: a pixel stays set only if every pixel within the erosion distance
+	 * on both axes was set. Pixels off screen count as clear, so erosion also trims coverage at
+	 * screen edges. Source can be this raster and exclude can be null. Both must be the same
+	 * size as this raster. Depth is not carried over and must not be enabled.
+	 */
+	final void reproject(AbstractRasterizer source, AbstractRasterizer exclude, int dx, int dy, int erosion) {
+		source.flushDraws();
+
+		if (exclude != null) {
+			exclude.flushDraws();
 		}
 
-		final int px = minPixelX;
-		final int py = minPixelY;
+		final int wordsPerRow = pixelWidth >> 6;
+		long[] rows = reprojectRows;
 
-		if (px == maxPixelX && py == maxPixelY) {
-			return px >= 0 && py >= 0 && px < PIXEL_WIDTH && py < PIXEL_HEIGHT && isPixelSet(px, py);
+		if (rows == null) {
+			rows = new long[pixelHeight * wordsPerRow];
+			reprojectRows = rows;
+			reprojectRow = new long[wordsPerRow];
+			reprojectTileRow = new long[1 << tileWidthBits];
 		} else {
-			return isQuadPartiallyOccluded();
+			Arrays.fill(rows, 0);
 		}
-	}
 
-	final boolean isQuadPartiallyOccluded() {
-		final int minTileX = minPixelX >> TILE_AXIS_SHIFT;
-		final int maxTileX = maxPixelX >> TILE_AXIS_SHIFT;
-		final int maxTileY = (maxPixelY >> TILE_AXIS_SHIFT) << TILE_WIDTH_BITS;
-		final long[] tiles = this.tiles;
+		// unpack set tiles of source to pixel rows
+		final long[] sourceSetTiles = source.setTiles;
+		final long[] sourceSetBlocks = source.setBlocks;
+		final int superBlockWidthMask = (1 << superBlockWidthBits) - 1;
 
-		int tileIndex = tileIndexFromPixelXY(minPixelX, minPixelY);
-		int xLimit = maxTileX;
-		int xInc = 1;
+		for (int superIndex = 0; superIndex < superBlockCount; ++superIndex) {
+			long blocks = sourceSetBlocks[superIndex];
 
-		while (true) {
-			final long word = tiles[tileIndex];
+			final int superBaseX = (superIndex & superBlockWidthMask) << BLOCK_AXIS_SHIFT;
+			final int superBaseY = (superIndex >> superBlockWidthBits) << BLOCK_AXIS_SHIFT;
 
-			if (word != 0 && (word & computeTileCoverage(tileIndex)) != 0) {
-				return true;
-			}
+			while (blocks != 0) {
+				final int blockBit = Long.numberOfTrailingZeros(blocks);
+				blocks &= blocks - 1;
 
-			if ((tileIndex & TILE_WIDTH_MASK) == xLimit) {
-				if ((tileIndex & TILE_HEIGHT_MASK) == maxTileY) {
-					return false;
-				} else {
-					// move up
-					tileIndex += TILE_WIDTH;
-					// flip x order
-					xLimit = xLimit == maxTileX ? minTileX : maxTileX;
-					xInc = -xInc;
+				final int tileBaseX = (superBaseX | (blockBit & 7)) << BLOCK_AXIS_SHIFT;
+				final int tileBaseY = (superBaseY | (blockBit >> 3)) << BLOCK_AXIS_SHIFT;
+				long set = sourceSetTiles[(tileBaseX >> BLOCK_AXIS_SHIFT) | ((tileBaseY >> BLOCK_AXIS_SHIFT) << blockWidthBits)];
+
+				while (set != 0) {
+					final int tileBit = Long.numberOfTrailingZeros(set);
+					set &= set - 1;
+
+					final int tileX = tileBaseX | (tileBit & 7);
+					final int tileY = tileBaseY | (tileBit >> 3);
+					final int tileIndex = Indexer.tileIndex(tileX, tileY, tileWidthBits);
+					long word = source.tile(tileIndex);
+
+					if (exclude != null) {
+						word &= ~exclude.tile(tileIndex);
+					}
+
+					if (word != 0) {
+						final int rowIndex = (tileY << TILE_AXIS_SHIFT) * wordsPerRow + (tileX >> 3);
+						final int shift = (tileX & 7) << 3;
+
+						for (int y = 0; y < 8; ++y) {
+							rows[rowIndex + y * wordsPerRow] |= ((word >>> (y << 3)) & 0xFFL) << shift;
+						}
+					}
 				}
-			} else {
-				// move left or right
-				tileIndex += xInc;
 			}
 		}
-	}
 
-	final void drawQuad() {
-		final int minTileX = minPixelX >> TILE_AXIS_SHIFT;
-		final int maxTileX = maxPixelX >> TILE_AXIS_SHIFT;
-		final int maxTileY = (maxPixelY >> TILE_AXIS_SHIFT) << TILE_WIDTH_BITS;
-		final long[] tiles = this.tiles;
+		// horizontal erosion happens in place, vertical erosion and the move as rows are packed to tiles
+		for (int i = 0; i < erosion; ++i) {
+			for (int rowIndex = 0; rowIndex < rows.length; rowIndex += wordsPerRow) {
+				erodeRow(rows, rowIndex, wordsPerRow);
+			}
+		}
+
+		clear();
+
+		final long[] row = reprojectRow;
+		final long[] tileRow = reprojectTileRow;
+		final int tileWidthMask = (1 << tileWidthBits) - 1;
+
+		for (int tileY = 0; tileY < tileHeight; ++tileY) {
+			boolean empty = true;
+
+			for (int y = 0; y < 8; ++y) {
+				final int sourceY = (tileY << TILE_AXIS_SHIFT) + y - dy;
+
+				if (sourceY - erosion < 0 || sourceY + erosion >= pixelHeight) {
+					continue;
+				}
+
+				Arrays.fill(row, -1L);
+
+				for (int rowIndex = (sourceY - erosion) * wordsPerRow, limit = (sourceY + erosion) * wordsPerRow; rowIndex <= limit; rowIndex += wordsPerRow) {
+					for (int i = 0; i < wordsPerRow; ++i) {
+						row[i] &= rows[rowIndex + i];
+					}
+				}
 
-		int tileIndex = tileIndexFromPixelXY(minPixelX, minPixelY);
-		int xLimit = maxTileX;
-		int xInc = 1;
+				for (int i = 0; i < wordsPerRow; ++i) {
+					final long word = movedWord(row, i, dx);
 
-		while (true) {
-			long word = tiles[tileIndex];
+					if (word != 0) {
+						empty = false;
 
-			// nothing to do if fully occluded
-			if (word != -1L) {
-				word |= computeTileCoverage(tileIndex);
-				tiles[tileIndex] = word;
+						for (int j = 0; j < 8; ++j) {
+							tileRow[(i << 3) | j] |= ((word >>> (j << 3)) & 0xFFL) << (y << 3);
+						}
+					}
+				}
 			}
 
-			if ((tileIndex & TILE_WIDTH_MASK) == xLimit) {
-				if ((tileIndex & TILE_HEIGHT_MASK) == maxTileY) {
-					return;
-				} else {
-					// move up
-					tileIndex += TILE_WIDTH;
-					// flip x order
-					xLimit = xLimit == maxTileX ? minTileX : maxTileX;
-					xInc = -xInc;
+			if (empty) {
+				continue;
+			}
+
+			for (int tileX = 0; tileX <= tileWidthMask; ++tileX) {
+				final long word = tileRow[tileX];
+
+				if (word != 0) {
+					tileRow[tileX] = 0;
+					setTile(Indexer.tileIndex(tileX, tileY, tileWidthBits), word);
+
+					final int blockIndex = (tileX >> BLOCK_AXIS_SHIFT) | ((tileY >> BLOCK_AXIS_SHIFT) << blockWidthBits);
+					final long tileBit = Indexer.pixelMask(tileX, tileY);
+					setTiles[blockIndex] |= tileBit;
+
+					if (word == -1L) {
+						fullTiles[blockIndex] |= tileBit;
+					}
 				}
-			} else {
-				// move left or right
-				tileIndex += xInc;
 			}
 		}
+
+		summarizeBlocks();
+	}
+
+	/** Clears each pixel in a row of words that does not have set pixels on both sides. */
+	private static void erodeRow(long[] rows, int rowIndex, int wordsPerRow) {
+		long prior = 0;
+
+		for (int i = 0; i < wordsPerRow; ++i) {
+			final long word = rows[rowIndex + i];
+			final long next = i + 1 < wordsPerRow ? rows[rowIndex + i + 1] : 0;
+			rows[rowIndex + i] = word & ((word << 1) | (prior >>> 63)) & ((word >>> 1) | (next << 63));
+			prior = word;
+		}
+	}
+
+	/** Word of a row moved right by the given number of pixels, or left when negative. Pixels moved in from off screen are clear. */
+	private static long movedWord(long[] row, int wordIndex, int shift) {
+		final int sourceIndex = wordIndex - (shift >> 6);
+		final int bitShift = shift & 63;
+		final long low = sourceIndex >= 0 && sourceIndex < row.length ? row[sourceIndex] : 0;
+
+		if (bitShift == 0) {
+			return low;
+		}
+
+		final long high = sourceIndex > 0 && sourceIndex <= row.length ? row[sourceIndex - 1] : 0;
+		return (low << bitShift) | (high >>> (64 - bitShift));
 	}
 
 	abstract int prepareBounds(int v0, int v1, int v2, int v3);
 
+	/**
+	 * Same as {@link #prepareBounds(int, int, int, int)} for triangles. Implementations
+	 * that clip may emit a quad, in which case events are populated by {@link #prepareEvents(int)}.
+	 */
+	abstract int prepareTriangleBounds(int v0, int v1, int v2);
+
+	/**
+	 * Same as {@link #prepareBounds(int, int, int, int)} for the convex polygon in
+	 * {@link #polygonVertices}. Implementations that clip put the result in {@link #polygonX}
+	 * and {@link #polygonY} and then call {@link #preparePolygonPoints(int)}.
+	 */
+	abstract int preparePolygonBounds(int vertexCount);
+
+	/**
+	 * Shrinks current events to pixels entirely inside the shape, for {@link #innerCoverage}.
+	 * Sloped edges are sampled at the top of each pixel row, so the narrower of a row and the
+	 * row below bounds the edge over the whole row.  Rounding of events can put the edge
+	 * up to half a pixel inside the first or last pixel, so one more pixel is removed on
+	 * the left and two on the right, where rounding favors coverage.
+	 *
+	 * <p>Flat edges can only be at the top or bottom of a convex shape, so rows that
+	 * aren't entirely within the vertical bounds are simply cleared.  This also clears
+	 * a row or two at the screen edge when the shape extends past it.
+	 */
+	private void erodeEvents() {
+		final int[] eventData = this.eventData;
+		final int limit = eventLimit;
+		final int firstRow = (minPixelY + 1) << 1;
+		final int lastRow = (maxPixelY - 2) << 1;
+
+		for (int y = eventY0 << 1; y <= limit; y += 2) {
+			if (y < firstRow || y > lastRow) {
+				eventData[y] = pixelWidth;
+				eventData[y + 1] = -1;
+			} else {
+				// row below is in range because last row is at least two rows above maxPixelY
+				eventData[y] = Math.max(eventData[y], eventData[y + 2]) + 1;
+				eventData[y + 1] = Math.min(eventData[y + 1], eventData[y + 3]) - 2;
+			}
+		}
+	}
+
 	private void populateFlatEvents(int position, int y0In) {
 		final int[] eventData = this.eventData;
 
 		if (position == EDGE_TOP) {
 			final int py = ((y0In + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) + 1;
 
-			if (py == MAX_PIXEL_Y) return;
+			if (py == lastPixelY) return;
 
 			final int y1 = (maxPixelY & TILE_AXIS_MASK) + 7;
 			final int start = py < 0 ? 0 : (py << 1);
 			final int limit = y1 << 1;
 
-			assert limit < EVENT_DATA_LENGTH;
+			assert limit < eventDataLength;
 
 			for (int y = start; y <= limit; ) {
-				eventData[y++] = PIXEL_WIDTH;
+				eventData[y++] = pixelWidth;
 				eventData[y++] = -1;
 			}
 		} else if (position == EDGE_BOTTOM) {
@@ -783,12 +1776,12 @@ public abstract class AbstractRasterizer {
 
 			final int y0 = minPixelY & TILE_AXIS_MASK;
 			final int start = y0 << 1;
-			final int limit = py > MAX_PIXEL_Y ? (MAX_PIXEL_Y << 1) : (py << 1);
+			final int limit = py > lastPixelY ? (lastPixelY << 1) : (py << 1);
 
-			assert limit < EVENT_DATA_LENGTH;
+			assert limit < eventDataLength;
 
 			for (int y = start; y < limit; ) {
-				eventData[y++] = PIXEL_WIDTH;
+				eventData[y++] = pixelWidth;
 				eventData[y++] = -1;
 			}
 		} else {
@@ -847,7 +1840,7 @@ public abstract class AbstractRasterizer {
 
 		// difference from left: is high index in pairs
 		for (int y = (y0 << 1) + 1; y <= limit; y += 2) {
-			eventData[y] = PIXEL_WIDTH;
+			eventData[y] = pixelWidth;
 		}
 	}
 
@@ -886,6 +1879,73 @@ public abstract class AbstractRasterizer {
 		}
 	}
 
+	/**
+	 * Same as {@link #populateLeftEvents(int)} but keeps the existing event when it is farther right.
+	 * For polygons with more left edges than the fixed-arity versions handle.
+	 */
+	private void mergeLeftEvents(int a) {
+		final int[] vertexData = this.vertexData;
+		final int ax0 = vertexData[a];
+		final int ay0 = vertexData[a + 1];
+		final int ax1 = vertexData[a + 2];
+		final int ay1 = vertexData[a + 3];
+
+		final int[] eventData = this.eventData;
+		final int y0 = eventY0;
+		final int limit = eventLimit;
+		final long dx = ax1 - ax0;
+
+		if (dx == 0) {
+			final int x = ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+
+			for (int y = (y0 << 1); y <= limit; y += 2) {
+				eventData[y] = Math.max(eventData[y], x);
+			}
+		} else {
+			final long n = (dx << 16) / (ay1 - ay0);
+			final long nStep = n << PRECISION_BITS;
+			long x = ((long) ax0 << 16) - n * ay0 + nStep * y0 + 0x100000L;
+
+			for (int y = (y0 << 1); y <= limit; y += 2) {
+				eventData[y] = Math.max(eventData[y], (int) (x >> 20));
+				x += nStep;
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link #populateRightEvents(int)} but keeps the existing event when it is farther left.
+	 */
+	private void mergeRightEvents(int a) {
+		final int[] vertexData = this.vertexData;
+		final int ax0 = vertexData[a];
+		final int ay0 = vertexData[a + 1];
+		final int ax1 = vertexData[a + 2];
+		final int ay1 = vertexData[a + 3];
+
+		final int[] eventData = this.eventData;
+		final int y0 = eventY0;
+		final int limit = eventLimit + 1;
+		final int dx = ax1 - ax0;
+
+		if (dx == 0) {
+			final int x = (ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS;
+
+			for (int y = (y0 << 1) + 1; y <= limit; y += 2) {
+				eventData[y] = Math.min(eventData[y], x);
+			}
+		} else {
+			final long n = (((long) dx) << 16) / (ay1 - ay0);
+			final long nStep = n << PRECISION_BITS;
+			long x = ((long) ax0 << 16) - n * ay0 + nStep * y0 + 0x7FFFFL;
+
+			for (int y = (y0 << 1) + 1; y <= limit; y += 2) {
+				eventData[y] = Math.min(eventData[y], (int) (x >> 20));
+				x += nStep;
+			}
+		}
+	}
+
 	private void populateLeftEvents2(int a, int b) {
 		final int[] vertexData = this.vertexData;
 
@@ -907,7 +1967,7 @@ public abstract class AbstractRasterizer {
 		long ax, bx;
 
 		if (ax0 == ax1) {
-			ax = ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			ax = (long) ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			aStep = 0;
 		} else {
 			final long an = (((long) (ax1 - ax0)) << 16) / (ay1 - ay0);
@@ -916,7 +1976,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (bx0 == bx1) {
-			bx = ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			bx = (long) ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			bStep = 0;
 		} else {
 			final long bn = (((long) (bx1 - bx0)) << 16) / (by1 - by0);
@@ -958,7 +2018,7 @@ public abstract class AbstractRasterizer {
 		long ax, bx, cx;
 
 		if (ax0 == ax1) {
-			ax = ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			ax = (long) ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			aStep = 0;
 		} else {
 			final long an = (((long) (ax1 - ax0)) << 16) / (ay1 - ay0);
@@ -967,7 +2027,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (bx0 == bx1) {
-			bx = ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			bx = (long) ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			bStep = 0;
 		} else {
 			final long bn = (((long) (bx1 - bx0)) << 16) / (by1 - by0);
@@ -976,7 +2036,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (cx0 == cx1) {
-			cx = ((cx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			cx = (long) ((cx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			cStep = 0;
 		} else {
 			final long cn = (((long) (cx1 - cx0)) << 16) / (cy1 - cy0);
@@ -1025,7 +2085,7 @@ public abstract class AbstractRasterizer {
 		long ax, bx, cx, dx;
 
 		if (ax0 == ax1) {
-			ax = ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			ax = (long) ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			aStep = 0;
 		} else {
 			final long an = (((long) (ax1 - ax0)) << 16) / (ay1 - ay0);
@@ -1034,7 +2094,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (bx0 == bx1) {
-			bx = ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			bx = (long) ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			bStep = 0;
 		} else {
 			final long bn = (((long) (bx1 - bx0)) << 16) / (by1 - by0);
@@ -1043,7 +2103,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (cx0 == cx1) {
-			cx = ((cx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			cx = (long) ((cx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			cStep = 0;
 		} else {
 			final long cn = (((long) (cx1 - cx0)) << 16) / (cy1 - cy0);
@@ -1052,7 +2112,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (dx0 == dx1) {
-			dx = ((dx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			dx = (long) ((dx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			dStep = 0;
 		} else {
 			final long dn = (((long) (dx1 - dx0)) << 16) / (dy1 - dy0);
@@ -1094,7 +2154,7 @@ public abstract class AbstractRasterizer {
 		long ax, bx;
 
 		if (ax0 == ax1) {
-			ax = ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			ax = (long) ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			aStep = 0;
 		} else {
 			final long an = (((long) (ax1 - ax0)) << 16) / (ay1 - ay0);
@@ -1104,7 +2164,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (bx0 == bx1) {
-			bx = ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			bx = (long) ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			bStep = 0;
 		} else {
 			final long bn = (((long) (bx1 - bx0)) << 16) / (by1 - by0);
@@ -1150,7 +2210,7 @@ public abstract class AbstractRasterizer {
 		long ax, bx, cx;
 
 		if (ax0 == ax1) {
-			ax = ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			ax = (long) ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			aStep = 0;
 		} else {
 			final long an = (((long) (ax1 - ax0)) << 16) / (ay1 - ay0);
@@ -1160,7 +2220,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (bx0 == bx1) {
-			bx = ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			bx = (long) ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			bStep = 0;
 		} else {
 			final long bn = (((long) (bx1 - bx0)) << 16) / (by1 - by0);
@@ -1170,7 +2230,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (cx0 == cx1) {
-			cx = ((cx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			cx = (long) ((cx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			cStep = 0;
 		} else {
 			final long cn = (((long) (cx1 - cx0)) << 16) / (cy1 - cy0);
@@ -1223,7 +2283,7 @@ public abstract class AbstractRasterizer {
 		long ax, bx, cx, dx;
 
 		if (ax0 == ax1) {
-			ax = ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			ax = (long) ((ax0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			aStep = 0;
 		} else {
 			final long an = (((long) (ax1 - ax0)) << 16) / (ay1 - ay0);
@@ -1233,7 +2293,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (bx0 == bx1) {
-			bx = ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			bx = (long) ((bx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			bStep = 0;
 		} else {
 			final long bn = (((long) (bx1 - bx0)) << 16) / (by1 - by0);
@@ -1243,7 +2303,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (cx0 == cx1) {
-			cx = ((cx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			cx = (long) ((cx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			cStep = 0;
 		} else {
 			final long cn = (((long) (cx1 - cx0)) << 16) / (cy1 - cy0);
@@ -1253,7 +2313,7 @@ public abstract class AbstractRasterizer {
 		}
 
 		if (dx0 == dx1) {
-			dx = ((dx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+			dx = (long) ((dx0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
 			dStep = 0;
 		} else {
 			final long dn = (((long) (dx1 - dx0)) << 16) / (dy1 - dy0);
@@ -1293,13 +2353,65 @@ public abstract class AbstractRasterizer {
 		}
 	}
 
-	long computeTileCoverage(int tileIndex) {
-		final int[] data = eventData;
-		final int tileFirstX = (tileIndex & TILE_WIDTH_MASK) << TILE_AXIS_SHIFT;
+	long computeTileCoverage(int tileX, int tileY) {
+		// +1 to left shift because events are in pairs
+		return computeTileCoverage(eventData, tileY << (TILE_AXIS_SHIFT + 1), tileX << TILE_AXIS_SHIFT);
+	}
+
+	static long computeTileCoverage(int[] data, int baseEventIndex, int tileFirstX) {
+		if (VECTOR_COVERAGE) {
+			return VectorCoverage.computeTileCoverage(data, baseEventIndex, tileFirstX);
+		} else if (SPAN_TABLE_COVERAGE) {
+			return computeTileCoverageSpans(data, baseEventIndex, tileFirstX);
+		} else {
+			return computeTileCoverageBranching(data, baseEventIndex, tileFirstX);
+		}
+	}
+
+	/**
+	 * Coverage masks for a single row of a tile, indexed by {@link #spanIndex(int, int)}.
+	 */
+	private static final long[] SPAN_MASKS = new long[81];
+
+	static {
+		for (int l = 0; l <= 8; ++l) {
+			for (int r = 0; r <= 8; ++r) {
+				SPAN_MASKS[l * 9 + r] = (0xFFL << l) & (0xFFL >>> r) & 0xFFL;
+			}
+		}
+	}
+
+	/**
+	 * Left and right offsets are distance of the span from each edge of the tile.
+	 * Clamped to 0-8 with min/max so there are no branches. 8 from either edge means no coverage.
+	 */
+	private static int spanIndex(int l, int r) {
+		return Math.min(8, Math.max(0, l)) * 9 + Math.min(8, Math.max(0, r));
+	}
+
+	/**
+	 * Branch-free version of {@link #computeTileCoverageBranching(int[], int, int)}.
+	 * Avoids mispredictions at edges, where most partially covered tiles are.
+	 */
+	static long computeTileCoverageSpans(int[] data, int baseEventIndex, int tileFirstX) {
 		final int tileLastX = tileFirstX + 7;
 
-		// +1 to left shift because events are in pairs
-		final int baseEventIndex = (tileIndex >> TILE_WIDTH_BITS) << (TILE_AXIS_SHIFT + 1);
+		return SPAN_MASKS[spanIndex(data[baseEventIndex] - tileFirstX, tileLastX - data[baseEventIndex + 1])]
+				| (SPAN_MASKS[spanIndex(data[baseEventIndex + 2] - tileFirstX, tileLastX - data[baseEventIndex + 3])] << 8)
+				| (SPAN_MASKS[spanIndex(data[baseEventIndex + 4] - tileFirstX, tileLastX - data[baseEventIndex + 5])] << 16)
+				| (SPAN_MASKS[spanIndex(data[baseEventIndex + 6] - tileFirstX, tileLastX - data[baseEventIndex + 7])] << 24)
+				| (SPAN_MASKS[spanIndex(data[baseEventIndex + 8] - tileFirstX, tileLastX - data[baseEventIndex + 9])] << 32)
+				| (SPAN_MASKS[spanIndex(data[baseEventIndex + 10] - tileFirstX, tileLastX - data[baseEventIndex + 11])] << 40)
+				| (SPAN_MASKS[spanIndex(data[baseEventIndex + 12] - tileFirstX, tileLastX - data[baseEventIndex + 13])] << 48)
+				| (SPAN_MASKS[spanIndex(data[baseEventIndex + 14] - tileFirstX, tileLastX - data[baseEventIndex + 15])] << 56);
+	}
+
+	/**
+	 * Row-by-row version with early exit when first and last rows are full.
+	 * Default scalar path - see {@link #SPAN_TABLE_COVERAGE}.
+	 */
+	static long computeTileCoverageBranching(int[] data, int baseEventIndex, int tileFirstX) {
+		final int tileLastX = tileFirstX + 7;
 		long mask = 0;
 		// shift left or right, > 7 means no coverage
 		int l, r;
@@ -1317,58 +2429,220 @@ public abstract class AbstractRasterizer {
 			return -1L;
 		}
 
-		if ((l = data[baseEventIndex + 2] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 3]) < 8) {
-			mask |= ((l < 0 ? 0xFF00L : 0xFF00L << l) & (r < 0 ? 0xFF00L : 0xFF00L >>> r));
+		if ((l = data[baseEventIndex + 2] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 3]) < 8) {
+			mask |= ((l < 0 ? 0xFF00L : 0xFF00L << l) & (r < 0 ? 0xFF00L : 0xFF00L >>> r));
+		}
+
+		if ((l = data[baseEventIndex + 4] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 5]) < 8) {
+			mask |= ((l < 0 ? 0xFF0000L : 0xFF0000L << l) & (r < 0 ? 0xFF0000L : 0xFF0000L >>> r));
+		}
+
+		if ((l = data[baseEventIndex + 6] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 7]) < 8) {
+			mask |= ((l < 0 ? 0xFF000000L : 0xFF000000L << l) & (r < 0 ? 0xFF000000L : 0xFF000000L >>> r));
+		}
+
+		if ((l = data[baseEventIndex + 8] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 9]) < 8) {
+			mask |= ((l < 0 ? 0xFF00000000L : 0xFF00000000L << l) & (r < 0 ? 0xFF00000000L : 0xFF00000000L >>> r));
+		}
+
+		if ((l = data[baseEventIndex + 10] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 11]) < 8) {
+			mask |= ((l < 0 ? 0xFF0000000000L : 0xFF0000000000L << l) & (r < 0 ? 0xFF0000000000L : 0xFF0000000000L >>> r));
+		}
+
+		if ((l = data[baseEventIndex + 12] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 13]) < 8) {
+			mask |= ((l < 0 ? 0xFF000000000000L : 0xFF000000000000L << l) & (r < 0 ? 0xFF000000000000L : 0xFF000000000000L >>> r));
+		}
+
+		//long bMask = computeTileCoverageB(tileIndex);
+		//
+		//if (bMask != mask) {
+		//	System.out.println("Prior");
+		//	Util.printMask(mask);
+		//	System.out.println("New");
+		//	Util.printMask(bMask);
+		//	computeTileCoverageB(tileIndex);
+		//}
+
+		return mask;
+	}
+
+	public final int pixelWidth() {
+		return pixelWidth;
+	}
+
+	public final int pixelHeight() {
+		return pixelHeight;
+	}
+
+	/**
+	 * Fraction of tiles that are entirely occluded, from 0 to 1.  When this is 1 and depth
+	 * is not enabled, nothing drawn can change the result of any test.  Does not include
+	 * shapes still waiting to be drawn - see {@link #flushDraws()}.
+	 */
+	public final float saturation() {
+		return (float) fullTileCount / tileCount;
+	}
+
+	final long tile(int tileIndex) {
+		if (sparseTiles) {
+			return sparseTile(tileIndex);
+		}
+
+		return OFF_HEAP_TILES ? tileWords.get(tileIndex) : tiles[tileIndex];
+	}
+
+	private void setTile(int tileIndex, long word) {
+		if (sparseTiles) {
+			setSparseTile(tileIndex, word);
+		} else if (OFF_HEAP_TILES) {
+			tileWords.put(tileIndex, word);
+		} else {
+			tiles[tileIndex] = word;
+		}
+	}
+
+	private int blockIndexOfTile(int tileIndex) {
+		if (Indexer.MORTON_TILES) {
+			return tileIndex >> 6;
+		}
+
+		return ((tileIndex & tileWidthMask) >> BLOCK_AXIS_SHIFT) | ((tileIndex >> (tileWidthBits + BLOCK_AXIS_SHIFT)) << blockWidthBits);
+	}
+
+	private static int blockBitOfTile(int tileIndex, int tileWidthBits) {
+		if (Indexer.MORTON_TILES) {
+			final int z = tileIndex & 63;
+			return Indexer.mortonX(z) | (Indexer.mortonY(z) << 3);
+		}
+
+		return (tileIndex & 7) | (((tileIndex >> tileWidthBits) & 7) << 3);
+	}
+
+	/**
+	 * Blocks without tile words have only empty and full tiles, so the full tile bit is the answer.
+	 */
+	private long sparseTile(int tileIndex) {
+		final int blockIndex = blockIndexOfTile(tileIndex);
+		final int blockBit = blockBitOfTile(tileIndex, tileWidthBits);
+		final long[] words = blockTiles[blockIndex];
+
+		if (words != null) {
+			return words[blockBit];
+		} else {
+			return (fullTiles[blockIndex] & (1L << blockBit)) == 0 ? 0 : -1L;
+		}
+	}
+
+	/**
+	 * Full tiles in blocks without tile words are recorded in {@link #fullTiles} right away,
+	 * ahead of the usual summary update, so that words created for a later tile in the
+	 * same block start out correct.  Tiles are only emptied by {@link #clear()}, which
+	 * releases the whole block, so empty words need no handling.
+	 */
+	private void setSparseTile(int tileIndex, long word) {
+		final int blockIndex = blockIndexOfTile(tileIndex);
+		final int blockBit = blockBitOfTile(tileIndex, tileWidthBits);
+		long[] words = blockTiles[blockIndex];
+
+		if (words != null) {
+			words[blockBit] = word;
+		} else if (word == -1L) {
+			fullTiles[blockIndex] |= 1L << blockBit;
+		} else if (word != 0) {
+			words = spareBlockTileCount == 0 ? new long[64] : spareBlockTiles[--spareBlockTileCount];
+			long full = fullTiles[blockIndex];
+
+			while (full != 0) {
+				words[Long.numberOfTrailingZeros(full)] = -1L;
+				full &= full - 1;
+			}
+
+			words[blockBit] = word;
+			blockTiles[blockIndex] = words;
 		}
+	}
 
-		if ((l = data[baseEventIndex + 4] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 5]) < 8) {
-			mask |= ((l < 0 ? 0xFF0000L : 0xFF0000L << l) & (r < 0 ? 0xFF0000L : 0xFF0000L >>> r));
-		}
+	private void releaseBlockTiles(int blockIndex) {
+		final long[] words = blockTiles[blockIndex];
 
-		if ((l = data[baseEventIndex + 6] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 7]) < 8) {
-			mask |= ((l < 0 ? 0xFF000000L : 0xFF000000L << l) & (r < 0 ? 0xFF000000L : 0xFF000000L >>> r));
+		if (words != null) {
+			Arrays.fill(words, 0);
+			spareBlockTiles[spareBlockTileCount++] = words;
+			blockTiles[blockIndex] = null;
 		}
+	}
 
-		if ((l = data[baseEventIndex + 8] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 9]) < 8) {
-			mask |= ((l < 0 ? 0xFF00000000L : 0xFF00000000L << l) & (r < 0 ? 0xFF00000000L : 0xFF00000000L >>> r));
+	/** Number of blocks with stored tile words. Always zero unless {@link #sparseTiles} is true. */
+	final int storedBlockCount() {
+		if (!sparseTiles) {
+			return 0;
 		}
 
-		if ((l = data[baseEventIndex + 10] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 11]) < 8) {
-			mask |= ((l < 0 ? 0xFF0000000000L : 0xFF0000000000L << l) & (r < 0 ? 0xFF0000000000L : 0xFF0000000000L >>> r));
+		flushDraws();
+
+		int result = 0;
+
+		for (final long[] words : blockTiles) {
+			if (words != null) {
+				++result;
+			}
 		}
 
-		if ((l = data[baseEventIndex + 12] - tileFirstX) < 8 && (r = tileLastX - data[baseEventIndex + 13]) < 8) {
-			mask |= ((l < 0 ? 0xFF000000000000L : 0xFF000000000000L << l) & (r < 0 ? 0xFF000000000000L : 0xFF000000000000L >>> r));
+		return result;
+	}
+
+	/**
+	 * Read-only view of tile memory for consumers such as native renderers.  Only available when
+	 * tiles are off heap - see {@link #OFF_HEAP_TILES}.  Changes as occluders are drawn, without copying.
+	 *
+	 * <p>Holds one 64-bit word per 8x8 tile in native byte order, row by row, with
+	 * {@code pixelWidth() / 8} tiles per row. Bit {@code (y & 7) * 8 + (x & 7)} of a tile is pixel x, y.
+	 * When launched with -Dbitraster.mortonTiles=true, tiles are instead stored 64 per 8x8 block of tiles,
+	 * in Morton order within each block, and blocks are row by row with {@code pixelWidth() / 64} per row.
+	 */
+	public final ByteBuffer tileBuffer() {
+		if (!OFF_HEAP_TILES || sparseTiles) {
+			throw new IllegalStateException("Tile buffer requires dense off-heap tiles. Launch with -Dbitraster.offHeapTiles=true to enable.");
 		}
 
-		//long bMask = computeTileCoverageB(tileIndex);
-		//
-		//if (bMask != mask) {
-		//	System.out.println("Prior");
-		//	Util.printMask(mask);
-		//	System.out.println("New");
-		//	Util.printMask(bMask);
-		//	computeTileCoverageB(tileIndex);
-		//}
+		flushDraws();
 
-		return mask;
+		return tileBytes.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
 	}
 
 	public boolean isPixelClear(int x, int y) {
-		return (tiles[Indexer.tileIndexFromPixelXY(x, y)] & (1L << (Indexer.pixelIndex(x, y)))) == 0;
+		flushDraws(x, y, x, y);
+		return (tile(tileIndexFromPixelXY(x, y, tileWidthBits)) & (1L << (Indexer.pixelIndex(x, y)))) == 0;
 	}
 
 	public boolean isPixelSet(int x, int y) {
-		return (tiles[Indexer.tileIndexFromPixelXY(x, y)] & (1L << (Indexer.pixelIndex(x, y)))) != 0;
+		flushDraws(x, y, x, y);
+		return (tile(tileIndexFromPixelXY(x, y, tileWidthBits)) & (1L << (Indexer.pixelIndex(x, y)))) != 0;
 	}
 
 	void drawPixel(int x, int y) {
-		tiles[Indexer.tileIndexFromPixelXY(x, y)] |= (1L << (Indexer.pixelIndex(x, y)));
-	}
+		final int tileIndex = tileIndexFromPixelXY(x, y, tileWidthBits);
+		final long oldWord = tile(tileIndex);
+		final long word = oldWord | (1L << (Indexer.pixelIndex(x, y)));
+		setTile(tileIndex, word);
+
+		if (word == -1L && oldWord != -1L) {
+			++fullTileCount;
+		}
+
+		final int tileX = x >> TILE_AXIS_SHIFT;
+		final int tileY = y >> TILE_AXIS_SHIFT;
+		final int blockIndex = (tileX >> BLOCK_AXIS_SHIFT) | ((tileY >> BLOCK_AXIS_SHIFT) << blockWidthBits);
+		final long tileBit = Indexer.pixelMask(tileX, tileY);
+		final long blockBit = Indexer.pixelMask(tileX >> BLOCK_AXIS_SHIFT, tileY >> BLOCK_AXIS_SHIFT);
+		final int superIndex = (tileX >> (BLOCK_AXIS_SHIFT * 2)) | ((tileY >> (BLOCK_AXIS_SHIFT * 2)) << superBlockWidthBits);
 
-	@FunctionalInterface
-	interface EventFiller {
-		void apply();
+		setTiles[blockIndex] |= tileBit;
+		setBlocks[superIndex] |= blockBit;
+
+		if (word == -1L && (fullTiles[blockIndex] |= tileBit) == -1L) {
+			fullBlocks[superIndex] |= blockBit;
+		}
 	}
 
 	/**
@@ -1451,11 +2725,11 @@ public abstract class AbstractRasterizer {
 			maxY = dy0;
 		}
 
-		if (maxY <= 0 || minY >= PRECISE_HEIGHT) {
+		if (maxY <= 0 || minY >= preciseHeight) {
 			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
 		}
 
-		if (maxX <= 0 || minX >= PRECISE_WIDTH) {
+		if (maxX <= 0 || minX >= preciseWidth) {
 			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
 		}
 
@@ -1463,11 +2737,11 @@ public abstract class AbstractRasterizer {
 			minX = 0;
 		}
 
-		if (maxX >= PRECISE_WIDTH_CLAMP) {
-			maxX = PRECISE_WIDTH_CLAMP;
+		if (maxX >= preciseWidthClamp) {
+			maxX = preciseWidthClamp;
 
-			if (minX > PRECISE_WIDTH_CLAMP) {
-				minX = PRECISE_WIDTH_CLAMP;
+			if (minX > preciseWidthClamp) {
+				minX = preciseWidthClamp;
 			}
 		}
 
@@ -1475,11 +2749,11 @@ public abstract class AbstractRasterizer {
 			minY = 0;
 		}
 
-		if (maxY >= PRECISE_HEIGHT_CLAMP) {
-			maxY = PRECISE_HEIGHT_CLAMP;
+		if (maxY >= preciseHeightClamp) {
+			maxY = preciseHeightClamp;
 
-			if (minY > PRECISE_HEIGHT_CLAMP) {
-				minY = PRECISE_HEIGHT_CLAMP;
+			if (minY > preciseHeightClamp) {
+				minY = preciseHeightClamp;
 			}
 		}
 
@@ -1523,13 +2797,1053 @@ public abstract class AbstractRasterizer {
 				| (((position2 - 1) & EVENT_POSITION_MASK) << 4)
 				| (((position3 - 1) & EVENT_POSITION_MASK) << 6);
 
-		prepareEvents(eventKey);
+		if (isSmallShape()) {
+			prepareSmallQuad();
+		} else {
+			prepareEvents(eventKey);
+		}
+
+		return BOUNDS_IN;
+	}
+
+	final int prepareTriangleBoundsNoClip(int v0, int v1, int v2) {
+		final int[] data = vertexData;
+		int ax0, ay0, ax1, ay1;
+		int bx0, by0, bx1, by1;
+		int cx0, cy0, cx1, cy1;
+		int minY = 0, maxY = 0, minX = 0, maxX = 0;
+
+		ax0 = data[v0 + PV_PX];
+		ay0 = data[v0 + PV_PY];
+		bx0 = data[v1 + PV_PX];
+		by0 = data[v1 + PV_PY];
+		cx0 = data[v2 + PV_PX];
+		cy0 = data[v2 + PV_PY];
+
+		ax1 = bx0;
+		ay1 = by0;
+		bx1 = cx0;
+		by1 = cy0;
+		cx1 = ax0;
+		cy1 = ay0;
+
+		minX = ax0;
+		maxX = ax0;
+
+		if (bx0 < minX) {
+			minX = bx0;
+		} else if (bx0 > maxX) {
+			maxX = bx0;
+		}
+
+		if (cx0 < minX) {
+			minX = cx0;
+		} else if (cx0 > maxX) {
+			maxX = cx0;
+		}
+
+		minY = ay0;
+		maxY = ay0;
+
+		if (by0 < minY) {
+			minY = by0;
+		} else if (by0 > maxY) {
+			maxY = by0;
+		}
+
+		if (cy0 < minY) {
+			minY = cy0;
+		} else if (cy0 > maxY) {
+			maxY = cy0;
+		}
+
+		if (maxY <= 0 || minY >= preciseHeight) {
+			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
+		}
+
+		if (maxX <= 0 || minX >= preciseWidth) {
+			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
+		}
+
+		if (minX < 0) {
+			minX = 0;
+		}
+
+		if (maxX >= preciseWidthClamp) {
+			maxX = preciseWidthClamp;
+
+			if (minX > preciseWidthClamp) {
+				minX = preciseWidthClamp;
+			}
+		}
+
+		if (minY < 0) {
+			minY = 0;
+		}
+
+		if (maxY >= preciseHeightClamp) {
+			maxY = preciseHeightClamp;
+
+			if (minY > preciseHeightClamp) {
+				minY = preciseHeightClamp;
+			}
+		}
+
+		final int minPixelX = ((minX + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		final int minPixelY = ((minY + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		final int maxPixelX = ((maxX + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		final int maxPixelY = ((maxY + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+
+		final int position0 = edgePosition(ax0, ay0, ax1, ay1);
+		final int position1 = edgePosition(bx0, by0, bx1, by1);
+		final int position2 = edgePosition(cx0, cy0, cx1, cy1);
+
+		this.minPixelX = minPixelX;
+		this.minPixelY = minPixelY;
+		this.maxPixelX = maxPixelX;
+		this.maxPixelY = maxPixelY;
+		data[IDX_AX0] = ax0;
+		data[IDX_AY0] = ay0;
+		data[IDX_AX1] = ax1;
+		data[IDX_AY1] = ay1;
+		data[IDX_BX0] = bx0;
+		data[IDX_BY0] = by0;
+		data[IDX_BX1] = bx1;
+		data[IDX_BY1] = by1;
+		data[IDX_CX0] = cx0;
+		data[IDX_CY0] = cy0;
+		data[IDX_CX1] = cx1;
+		data[IDX_CY1] = cy1;
+		pos0 = position0;
+		pos1 = position1;
+		pos2 = position2;
+
+		final int eventKey = (position0 - 1) & EVENT_POSITION_MASK
+				| (((position1 - 1) & EVENT_POSITION_MASK) << 2)
+				| (((position2 - 1) & EVENT_POSITION_MASK) << 4);
+
+		prepareTriangleEvents(eventKey);
+		return BOUNDS_IN;
+	}
+
+	final int preparePolygonBoundsNoClip(int vertexCount) {
+		final int[] data = vertexData;
+		final int[] vertices = polygonVertices;
+		final int[] polygonX = this.polygonX;
+		final int[] polygonY = this.polygonY;
+
+		for (int i = 0; i < vertexCount; ++i) {
+			polygonX[i] = data[vertices[i] + PV_PX];
+			polygonY[i] = data[vertices[i] + PV_PY];
+		}
+
+		return preparePolygonPoints(vertexCount);
+	}
+
+	/**
+	 * Computes bounds and populates events for the convex polygon in {@link #polygonX} and {@link #polygonY}.
+	 * Edges are sorted by position and then handled the same way as quads, except there can be more of them.
+	 * Returns {@link Constants#BOUNDS_CONCAVE} without populating events if any vertex turns the wrong way,
+	 * because merging left and right edges would then cut a wedge out of the polygon.
+	 */
+	final int preparePolygonPoints(int pointCount) {
+		final int[] data = vertexData;
+		final int[] polygonX = this.polygonX;
+		final int[] polygonY = this.polygonY;
+		int minX = polygonX[0], maxX = minX;
+		int minY = polygonY[0], maxY = minY;
+
+		for (int i = 1; i < pointCount; ++i) {
+			final int x = polygonX[i];
+			final int y = polygonY[i];
+
+			if (x < minX) {
+				minX = x;
+			} else if (x > maxX) {
+				maxX = x;
+			}
+
+			if (y < minY) {
+				minY = y;
+			} else if (y > maxY) {
+				maxY = y;
+			}
+		}
+
+		if (maxY <= 0 || minY >= preciseHeight) {
+			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
+		}
+
+		if (maxX <= 0 || minX >= preciseWidth) {
+			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
+		}
+
+		if (minX < 0) {
+			minX = 0;
+		}
+
+		if (maxX >= preciseWidthClamp) {
+			maxX = preciseWidthClamp;
+
+			if (minX > preciseWidthClamp) {
+				minX = preciseWidthClamp;
+			}
+		}
+
+		if (minY < 0) {
+			minY = 0;
+		}
+
+		if (maxY >= preciseHeightClamp) {
+			maxY = preciseHeightClamp;
+
+			if (minY > preciseHeightClamp) {
+				minY = preciseHeightClamp;
+			}
+		}
+
+		minPixelX = ((minX + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		minPixelY = ((minY + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		maxPixelX = ((maxX + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		maxPixelY = ((maxY + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+
+		// Box silhouettes are convex, but rounding a nearly edge-on face can leave a slight dent.
+		// Goes around twice so every turn is checked even when rounding collapses some edges.
+		int prevX = polygonX[pointCount - 1];
+		int prevY = polygonY[pointCount - 1];
+		int dx = 0, dy = 0;
+
+		for (int n = 0; n < pointCount * 2; ++n) {
+			final int i = n < pointCount ? n : n - pointCount;
+			final int x = polygonX[i];
+			final int y = polygonY[i];
+			final int nx = x - prevX;
+			final int ny = y - prevY;
+
+			if (nx == 0 && ny == 0) {
+				continue;
+			}
+
+			if ((long) dx * ny - (long) dy * nx < 0) {
+				return BOUNDS_CONCAVE;
+			}
+
+			prevX = x;
+			prevY = y;
+			dx = nx;
+			dy = ny;
+		}
+
+		final int[] leftEdges = this.leftEdges;
+		final int[] rightEdges = this.rightEdges;
+		final int[] flatPositions = this.flatPositions;
+		final int[] flatY = this.flatY;
+		int leftCount = 0, rightCount = 0, flatCount = 0;
+
+		for (int i = 0; i < pointCount; ++i) {
+			final int j = i + 1 == pointCount ? 0 : i + 1;
+			final int base = IDX_POLYGON_EDGES + i * POLYGON_EDGE_STRIDE;
+			final int x0 = polygonX[i];
+			final int y0 = polygonY[i];
+			final int x1 = polygonX[j];
+			final int y1 = polygonY[j];
+			data[base] = x0;
+			data[base + 1] = y0;
+			data[base + 2] = x1;
+			data[base + 3] = y1;
+
+			final int position = edgePosition(x0, y0, x1, y1);
+
+			switch ((position - 1) & EVENT_POSITION_MASK) {
+				case EVENT_0_LEFT:
+					leftEdges[leftCount++] = base;
+					break;
+				case EVENT_0_RIGHT:
+					rightEdges[rightCount++] = base;
+					break;
+				default:
+					flatPositions[flatCount] = position;
+					flatY[flatCount++] = y0;
+			}
+		}
+
+		if (isSmallShape()) {
+			prepareSmallCoverage(leftCount, rightCount, flatCount);
+			return BOUNDS_IN;
+		}
+
+		smallShape = false;
+		eventY0 = minPixelY & TILE_AXIS_MASK;
+		eventLimit = (((maxPixelY & TILE_AXIS_MASK) + 7) << 1);
+
+		switch (leftCount) {
+			case 0:
+				populateLeftEvents();
+				break;
+			case 1:
+				populateLeftEvents(leftEdges[0]);
+				break;
+			case 2:
+				populateLeftEvents2(leftEdges[0], leftEdges[1]);
+				break;
+			case 3:
+				populateLeftEvents3(leftEdges[0], leftEdges[1], leftEdges[2]);
+				break;
+			default:
+				populateLeftEvents4(leftEdges[0], leftEdges[1], leftEdges[2], leftEdges[3]);
+
+				for (int i = 4; i < leftCount; ++i) {
+					mergeLeftEvents(leftEdges[i]);
+				}
+		}
+
+		switch (rightCount) {
+			case 0:
+				populateRightEvents();
+				break;
+			case 1:
+				populateRightEvents(rightEdges[0]);
+				break;
+			case 2:
+				populateRightEvents2(rightEdges[0], rightEdges[1]);
+				break;
+			case 3:
+				populateRightEvents3(rightEdges[0], rightEdges[1], rightEdges[2]);
+				break;
+			default:
+				populateRightEvents4(rightEdges[0], rightEdges[1], rightEdges[2], rightEdges[3]);
+
+				for (int i = 4; i < rightCount; ++i) {
+					mergeRightEvents(rightEdges[i]);
+				}
+		}
+
+		for (int i = 0; i < flatCount; ++i) {
+			populateFlatEvents(flatPositions[i], flatY[i]);
+		}
+
 		return BOUNDS_IN;
 	}
 
+	/**
+	 * True if the current bounds span at most 2x2 tiles and events aren't needed, so coverage
+	 * can be computed by {@link #prepareSmallCoverage(int, int, int)}. Events are still needed
+	 * to erode inner coverage or to keep the shape in {@link #drawBatch}.
+	 */
+	private boolean isSmallShape() {
+		return SMALL_SHAPE_COVERAGE && (maxPixelX >> TILE_AXIS_SHIFT) - (minPixelX >> TILE_AXIS_SHIFT) <= 1
+				&& (maxPixelY >> TILE_AXIS_SHIFT) - (minPixelY >> TILE_AXIS_SHIFT) <= 1
+				&& !innerCoverage && drawBatch == null;
+	}
+
+	/** Sorts edges of the current quad by classification and computes its coverage, for small quads. */
+	private void prepareSmallQuad() {
+		int leftCount = 0, rightCount = 0, flatCount = 0;
+
+		for (int i = 0; i < 4; ++i) {
+			final int base = i == 0 ? IDX_AX0 : i == 1 ? IDX_BX0 : i == 2 ? IDX_CX0 : IDX_DX0;
+			final int position = i == 0 ? pos0 : i == 1 ? pos1 : i == 2 ? pos2 : pos3;
+
+			switch ((position - 1) & EVENT_POSITION_MASK) {
+				case EVENT_0_LEFT:
+					leftEdges[leftCount++] = base;
+					break;
+				case EVENT_0_RIGHT:
+					rightEdges[rightCount++] = base;
+					break;
+				default:
+					flatPositions[flatCount] = position;
+					flatY[flatCount++] = vertexData[base + 1];
+			}
+		}
+
+		prepareSmallCoverage(leftCount, rightCount, flatCount);
+	}
+
+	/**
+	 * Computes coverage of each tile of a small shape directly from the edges in {@link #leftEdges},
+	 * {@link #rightEdges} and {@link #flatY}, without populating events or walking summaries later.
+	 * Rows and rounding are the same as the populate methods and {@link #populateFlatEvents(int, int)},
+	 * so coverage is identical to what events would give.
+	 */
+	private void prepareSmallCoverage(int leftCount, int rightCount, int flatCount) {
+		final int[] vertexData = this.vertexData;
+		final long[] edgeX = smallEdgeX;
+		final long[] edgeStep = smallEdgeStep;
+		final int firstRow = minPixelY & TILE_AXIS_MASK;
+		int rowStart = firstRow;
+		int rowEnd = (maxPixelY & TILE_AXIS_MASK) + 7;
+
+		// flat edges clear rows above or below them
+		for (int i = 0; i < flatCount; ++i) {
+			if (flatPositions[i] == EDGE_TOP) {
+				final int py = ((flatY[i] + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) + 1;
+
+				if (py != lastPixelY) {
+					rowEnd = Math.min(rowEnd, py - 1);
+				}
+			} else if (flatPositions[i] == EDGE_BOTTOM) {
+				final int py = flatY[i] >> PRECISION_BITS;
+
+				if (py != 0) {
+					rowStart = Math.max(rowStart, Math.min(py, lastPixelY));
+				}
+			}
+		}
+
+		// left edges first, then right, same fixed point and rounding as events
+		final int edgeCount = leftCount + rightCount;
+
+		for (int i = 0; i < edgeCount; ++i) {
+			final int a = i < leftCount ? leftEdges[i] : rightEdges[i - leftCount];
+			final int x0 = vertexData[a];
+			final int y0 = vertexData[a + 1];
+			final int x1 = vertexData[a + 2];
+
+			if (x0 == x1) {
+				edgeX[i] = (long) ((x0 + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS) << 20;
+				edgeStep[i] = 0;
+			} else {
+				final long n = (((long) (x1 - x0)) << 16) / (vertexData[a + 3] - y0);
+				final long step = n << PRECISION_BITS;
+				edgeStep[i] = step;
+				edgeX[i] = ((long) x0 << 16) - n * y0 + step * rowStart + (i < leftCount ? 0x100000L : 0x7FFFFL);
+			}
+		}
+
+		final long[] smallCoverage = this.smallCoverage;
+		smallCoverage[0] = 0;
+		smallCoverage[1] = 0;
+		smallCoverage[2] = 0;
+		smallCoverage[3] = 0;
+
+		final int leftTileX = minPixelX & TILE_AXIS_MASK;
+		final int rightTileX = leftTileX + 8;
+
+		for (int y = rowStart; y <= rowEnd; ++y) {
+			long left = leftCount == 0 ? 0 : Long.MIN_VALUE;
+			long right = rightCount == 0 ? (long) pixelWidth << 20 : Long.MAX_VALUE;
+
+			for (int i = 0; i < leftCount; ++i) {
+				left = Math.max(left, edgeX[i]);
+				edgeX[i] += edgeStep[i];
+			}
+
+			for (int i = leftCount; i < edgeCount; ++i) {
+				right = Math.min(right, edgeX[i]);
+				edgeX[i] += edgeStep[i];
+			}
+
+			final int x0 = (int) (left >> 20);
+			final int x1 = (int) (right >> 20);
+			final int shift = (y & 7) << 3;
+			final int index = (y - firstRow) >> TILE_AXIS_SHIFT << 1;
+			smallCoverage[index] |= rowCoverage(x0 - leftTileX, leftTileX + 7 - x1) << shift;
+			smallCoverage[index + 1] |= rowCoverage(x0 - rightTileX, rightTileX + 7 - x1) << shift;
+		}
+
+		smallShape = true;
+	}
+
+	/** Bits of a tile row covered by a span that starts l pixels from the left of the tile and ends r pixels from the right. */
+	private static long rowCoverage(int l, int r) {
+		return l < 8 && r < 8 ? (0xFFL << Math.max(0, l)) & (0xFFL >>> Math.max(0, r)) : 0;
+	}
+
+	/**
+	 * Populates events for the current quad using the edge classifications combined in eventKey.
+	 * A switch instead of a table of lambdas so the dispatch is monomorphic and the JIT sees every
+	 * populate call directly.  Keys without a case are never produced.
+	 */
 	void prepareEvents(int eventKey) {
+		smallShape = false;
 		eventY0 = minPixelY & TILE_AXIS_MASK;
 		eventLimit = (((maxPixelY & TILE_AXIS_MASK) + 7) << 1);
-		EVENT_FILLERS[eventKey].apply();
+
+		switch (eventKey) {
+			case EVENT_0123_RRRR:
+				populateLeftEvents();
+				populateRightEvents4(IDX_AX0, IDX_BX0, IDX_CX0, IDX_DX0);
+				break;
+			case EVENT_0123_LRRR:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents3(IDX_BX0, IDX_CX0, IDX_DX0);
+				break;
+			case EVENT_0123_FRRR:
+				populateLeftEvents();
+				populateRightEvents3(IDX_BX0, IDX_CX0, IDX_DX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_0123_RLRR:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents3(IDX_AX0, IDX_CX0, IDX_DX0);
+				break;
+			case EVENT_0123_LLRR:
+				populateLeftEvents2(IDX_AX0, IDX_BX0);
+				populateRightEvents2(IDX_CX0, IDX_DX0);
+				break;
+			case EVENT_0123_FLRR:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents2(IDX_CX0, IDX_DX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_0123_RFRR:
+				populateLeftEvents();
+				populateRightEvents3(IDX_AX0, IDX_CX0, IDX_DX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_LFRR:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents2(IDX_CX0, IDX_DX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_FFRR:
+				populateLeftEvents();
+				populateRightEvents2(IDX_CX0, IDX_DX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_RRLR:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents3(IDX_AX0, IDX_BX0, IDX_DX0);
+				break;
+			case EVENT_0123_LRLR:
+				populateLeftEvents2(IDX_AX0, IDX_CX0);
+				populateRightEvents2(IDX_BX0, IDX_DX0);
+				break;
+			case EVENT_0123_FRLR:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents2(IDX_BX0, IDX_DX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_0123_RLLR:
+				populateLeftEvents2(IDX_BX0, IDX_CX0);
+				populateRightEvents2(IDX_AX0, IDX_DX0);
+				break;
+			case EVENT_0123_LLLR:
+				populateLeftEvents3(IDX_AX0, IDX_BX0, IDX_CX0);
+				populateRightEvents(IDX_DX0);
+				break;
+			case EVENT_0123_FLLR:
+				populateLeftEvents2(IDX_BX0, IDX_CX0);
+				populateRightEvents(IDX_DX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_0123_RFLR:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents2(IDX_AX0, IDX_DX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_LFLR:
+				populateLeftEvents2(IDX_AX0, IDX_CX0);
+				populateRightEvents(IDX_DX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_FFLR:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents(IDX_DX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_LRFR:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents2(IDX_BX0, IDX_DX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_RRFR:
+				populateLeftEvents();
+				populateRightEvents3(IDX_AX0, IDX_BX0, IDX_DX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_FRFR:
+				populateLeftEvents();
+				populateRightEvents2(IDX_BX0, IDX_DX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_RLFR:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents2(IDX_AX0, IDX_DX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_LLFR:
+				populateLeftEvents2(IDX_AX0, IDX_BX0);
+				populateRightEvents(IDX_DX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_FLFR:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents(IDX_DX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_RFFR:
+				populateLeftEvents();
+				populateRightEvents2(IDX_AX0, IDX_DX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_LFFR:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents(IDX_DX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_FFFR:
+				populateLeftEvents();
+				populateRightEvents(IDX_DX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_RRRL:
+				populateLeftEvents(IDX_DX0);
+				populateRightEvents3(IDX_AX0, IDX_BX0, IDX_CX0);
+				break;
+			case EVENT_0123_LRRL:
+				populateLeftEvents2(IDX_AX0, IDX_DX0);
+				populateRightEvents2(IDX_BX0, IDX_CX0);
+				break;
+			case EVENT_0123_FRRL:
+				populateLeftEvents(IDX_DX0);
+				populateRightEvents2(IDX_BX0, IDX_CX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_0123_RLRL:
+				populateLeftEvents2(IDX_BX0, IDX_DX0);
+				populateRightEvents2(IDX_AX0, IDX_CX0);
+				break;
+			case EVENT_0123_LLRL:
+				populateLeftEvents3(IDX_AX0, IDX_BX0, IDX_DX0);
+				populateRightEvents(IDX_CX0);
+				break;
+			case EVENT_0123_FLRL:
+				populateLeftEvents2(IDX_BX0, IDX_DX0);
+				populateRightEvents(IDX_CX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_0123_RFRL:
+				populateLeftEvents(IDX_DX0);
+				populateRightEvents2(IDX_AX0, IDX_CX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_LFRL:
+				populateLeftEvents2(IDX_AX0, IDX_DX0);
+				populateRightEvents(IDX_CX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_FFRL:
+				populateLeftEvents(IDX_DX0);
+				populateRightEvents(IDX_CX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_RRLL:
+				populateLeftEvents2(IDX_CX0, IDX_DX0);
+				populateRightEvents2(IDX_AX0, IDX_BX0);
+				break;
+			case EVENT_0123_LRLL:
+				populateLeftEvents3(IDX_AX0, IDX_CX0, IDX_DX0);
+				populateRightEvents(IDX_BX0);
+				break;
+			case EVENT_0123_FRLL:
+				populateLeftEvents2(IDX_CX0, IDX_DX0);
+				populateRightEvents(IDX_BX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_0123_RLLL:
+				populateLeftEvents3(IDX_BX0, IDX_CX0, IDX_DX0);
+				populateRightEvents(IDX_AX0);
+				break;
+			case EVENT_0123_LLLL:
+				populateLeftEvents4(IDX_AX0, IDX_BX0, IDX_CX0, IDX_DX0);
+				populateRightEvents();
+				break;
+			case EVENT_0123_FLLL:
+				populateLeftEvents3(IDX_BX0, IDX_CX0, IDX_DX0);
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_0123_RFLL:
+				populateLeftEvents2(IDX_CX0, IDX_DX0);
+				populateRightEvents(IDX_AX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_LFLL:
+				populateLeftEvents3(IDX_AX0, IDX_CX0, IDX_DX0);
+				populateRightEvents();
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_FFLL:
+				populateLeftEvents2(IDX_CX0, IDX_DX0);
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_0123_LRFL:
+				populateLeftEvents2(IDX_AX0, IDX_DX0);
+				populateRightEvents(IDX_BX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_RRFL:
+				populateLeftEvents(IDX_DX0);
+				populateRightEvents2(IDX_AX0, IDX_BX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_FRFL:
+				populateLeftEvents(IDX_DX0);
+				populateRightEvents(IDX_BX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_RLFL:
+				populateLeftEvents2(IDX_BX0, IDX_DX0);
+				populateRightEvents(IDX_AX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_LLFL:
+				populateLeftEvents3(IDX_AX0, IDX_BX0, IDX_DX0);
+				populateRightEvents();
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_FLFL:
+				populateLeftEvents2(IDX_BX0, IDX_DX0);
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_RFFL:
+				populateLeftEvents(IDX_DX0);
+				populateRightEvents(IDX_AX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_LFFL:
+				populateLeftEvents2(IDX_AX0, IDX_DX0);
+				populateRightEvents();
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_FFFL:
+				populateLeftEvents(IDX_DX0);
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_0123_RRRF:
+				populateLeftEvents();
+				populateRightEvents3(IDX_AX0, IDX_BX0, IDX_CX0);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_LRRF:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents2(IDX_BX0, IDX_CX0);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_FRRF:
+				populateLeftEvents();
+				populateRightEvents2(IDX_BX0, IDX_CX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_RLRF:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents2(IDX_AX0, IDX_CX0);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_LLRF:
+				populateLeftEvents2(IDX_AX0, IDX_BX0);
+				populateRightEvents(IDX_CX0);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_FLRF:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents(IDX_CX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_RFRF:
+				populateLeftEvents();
+				populateRightEvents2(IDX_AX0, IDX_CX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_LFRF:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents(IDX_CX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_FFRF:
+				populateLeftEvents();
+				populateRightEvents(IDX_CX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_RRLF:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents2(IDX_AX0, IDX_BX0);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_LRLF:
+				populateLeftEvents2(IDX_AX0, IDX_CX0);
+				populateRightEvents(IDX_BX0);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_FRLF:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents(IDX_BX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_RLLF:
+				populateLeftEvents2(IDX_BX0, IDX_CX0);
+				populateRightEvents(IDX_AX0);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_LLLF:
+				populateLeftEvents3(IDX_AX0, IDX_BX0, IDX_CX0);
+				populateRightEvents();
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_FLLF:
+				populateLeftEvents2(IDX_BX0, IDX_CX0);
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_RFLF:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents(IDX_AX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_LFLF:
+				populateLeftEvents2(IDX_AX0, IDX_CX0);
+				populateRightEvents();
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_FFLF:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_LRFF:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents(IDX_BX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_RRFF:
+				populateLeftEvents();
+				populateRightEvents2(IDX_AX0, IDX_BX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_FRFF:
+				populateLeftEvents();
+				populateRightEvents(IDX_BX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_RLFF:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents(IDX_AX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_LLFF:
+				populateLeftEvents2(IDX_AX0, IDX_BX0);
+				populateRightEvents();
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_FLFF:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_RFFF:
+				populateLeftEvents();
+				populateRightEvents(IDX_AX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_LFFF:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents();
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			case EVENT_0123_FFFF:
+				// fill it
+				populateLeftEvents();
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				populateFlatEvents(pos3, vertexData[IDX_DY0]);
+				break;
+			default:
+				throw new IllegalStateException("Unexpected quad event key " + eventKey);
+		}
+	}
+
+	/** Same as {@link #prepareEvents(int)} for triangles - only edges A, B and C are used. */
+	void prepareTriangleEvents(int eventKey) {
+		smallShape = false;
+		eventY0 = minPixelY & TILE_AXIS_MASK;
+		eventLimit = (((maxPixelY & TILE_AXIS_MASK) + 7) << 1);
+
+		switch (eventKey) {
+			case EVENT_012_RRR:
+				populateLeftEvents();
+				populateRightEvents3(IDX_AX0, IDX_BX0, IDX_CX0);
+				break;
+			case EVENT_012_LRR:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents2(IDX_BX0, IDX_CX0);
+				break;
+			case EVENT_012_FRR:
+				populateLeftEvents();
+				populateRightEvents2(IDX_BX0, IDX_CX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_012_RLR:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents2(IDX_AX0, IDX_CX0);
+				break;
+			case EVENT_012_LLR:
+				populateLeftEvents2(IDX_AX0, IDX_BX0);
+				populateRightEvents(IDX_CX0);
+				break;
+			case EVENT_012_FLR:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents(IDX_CX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_012_RFR:
+				populateLeftEvents();
+				populateRightEvents2(IDX_AX0, IDX_CX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_012_LFR:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents(IDX_CX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_012_FFR:
+				populateLeftEvents();
+				populateRightEvents(IDX_CX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_012_RRL:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents2(IDX_AX0, IDX_BX0);
+				break;
+			case EVENT_012_LRL:
+				populateLeftEvents2(IDX_AX0, IDX_CX0);
+				populateRightEvents(IDX_BX0);
+				break;
+			case EVENT_012_FRL:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents(IDX_BX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_012_RLL:
+				populateLeftEvents2(IDX_BX0, IDX_CX0);
+				populateRightEvents(IDX_AX0);
+				break;
+			case EVENT_012_LLL:
+				populateLeftEvents3(IDX_AX0, IDX_BX0, IDX_CX0);
+				populateRightEvents();
+				break;
+			case EVENT_012_FLL:
+				populateLeftEvents2(IDX_BX0, IDX_CX0);
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				break;
+			case EVENT_012_RFL:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents(IDX_AX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_012_LFL:
+				populateLeftEvents2(IDX_AX0, IDX_CX0);
+				populateRightEvents();
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_012_FFL:
+				populateLeftEvents(IDX_CX0);
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				break;
+			case EVENT_012_RRF:
+				populateLeftEvents();
+				populateRightEvents2(IDX_AX0, IDX_BX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_012_LRF:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents(IDX_BX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_012_FRF:
+				populateLeftEvents();
+				populateRightEvents(IDX_BX0);
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_012_RLF:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents(IDX_AX0);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_012_LLF:
+				populateLeftEvents2(IDX_AX0, IDX_BX0);
+				populateRightEvents();
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_012_FLF:
+				populateLeftEvents(IDX_BX0);
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_012_RFF:
+				populateLeftEvents();
+				populateRightEvents(IDX_AX0);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_012_LFF:
+				populateLeftEvents(IDX_AX0);
+				populateRightEvents();
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			case EVENT_012_FFF:
+				// fill it
+				populateLeftEvents();
+				populateRightEvents();
+				populateFlatEvents(pos0, vertexData[IDX_AY0]);
+				populateFlatEvents(pos1, vertexData[IDX_BY0]);
+				populateFlatEvents(pos2, vertexData[IDX_CY0]);
+				break;
+			default:
+				throw new IllegalStateException("Unexpected triangle event key " + eventKey);
+		}
 	}
 }
@@ -20,10 +20,14 @@ import static grondag.bitraster.Constants.CAMERA_PRECISION_BITS;
 import static grondag.bitraster.Constants.CAMERA_PRECISION_UNITY;
 import static grondag.bitraster.Constants.DOWN;
 import static grondag.bitraster.Constants.EAST;
-import static grondag.bitraster.Constants.EMPTY_BITS;
 import static grondag.bitraster.Constants.NORTH;
+import static grondag.bitraster.Constants.PRECISE_PIXEL_SIZE;
+import static grondag.bitraster.Constants.PROJECTED_VERTEX_STRIDE;
+import static grondag.bitraster.Constants.PV_PX;
+import static grondag.bitraster.Constants.PV_PY;
+import static grondag.bitraster.Constants.PV_W;
+import static grondag.bitraster.Constants.PV_Z;
 import static grondag.bitraster.Constants.SOUTH;
-import static grondag.bitraster.Constants.TILE_COUNT;
 import static grondag.bitraster.Constants.UP;
 import static grondag.bitraster.Constants.V000;
 import static grondag.bitraster.Constants.V001;
@@ -35,12 +39,56 @@ import static grondag.bitraster.Constants.V110;
 import static grondag.bitraster.Constants.V111;
 import static grondag.bitraster.Constants.WEST;
 
+import java.util.Arrays;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 
 public abstract class BoxOccluder {
 	/** How close face must be to trigger aggressive refresh of occlusion. */
 	private static final int NEAR_RANGE = 8 << CAMERA_PRECISION_BITS;
 
+	/**
+	 * With {@link #reprojection(boolean)}, regions farther than this many chunks are not redrawn
+	 * after small view changes. Their coverage is moved from the previous frame instead.
+	 */
+	private static final int REPROJECTION_CHUNK_RADIUS = 6;
+
+	/**
+	 * Least distance, in blocks along the view direction, assumed for anything drawn by regions beyond
+	 * {@link #REPROJECTION_CHUNK_RADIUS}. Chunk distance is measured between chunk origins and
+	 * on-screen points off the view axis can be nearer in depth than in distance, hence the margin.
+	 */
+	private static final float REPROJECTION_MIN_DEPTH = 8 * (REPROJECTION_CHUNK_RADIUS - 2);
+
+	/**
+	 * Larger view changes are redrawn because erosion would remove most reprojected coverage.
+	 * In pixels for rasters up to 1024 wide, and scaled up for wider ones.
+	 */
+	private static final int REPROJECTION_MAX_EROSION = 4;
+
+	/** Erosion accumulates with each reprojection, so the scene is fully redrawn after this many in a row. */
+	private static final int REPROJECTION_FRAME_LIMIT = 8;
+
+	/**
+	 * Least distance, in blocks along the view direction, assumed for occluders when judging
+	 * {@link #viewTolerance(int)} without near occluders. Boxes that aren't near are at least
+	 * {@link #NEAR_RANGE} away on some axis, and on-screen points off the view axis can be
+	 * nearer in depth than in distance.
+	 */
+	private static final float VIEW_TOLERANCE_MIN_DEPTH = 4;
+
+	/** Importance of an occluder halves at this depth in blocks. See {@link #occluderImportance(int)}. */
+	private static final float IMPORTANCE_DEPTH_SCALE = 32;
+
+	/** Fields of each region queued by {@link #queueOccluders(int, int, int, int, int, int[])}. */
+	private static final int QUEUE_ORIGIN_X = 0;
+	private static final int QUEUE_ORIGIN_Y = 1;
+	private static final int QUEUE_ORIGIN_Z = 2;
+	private static final int QUEUE_OCCLUSION_RANGE = 3;
+	private static final int QUEUE_SQUARED_CHUNK_DISTANCE = 4;
+	private static final int QUEUE_STRIDE = 5;
+
 	private final Matrix4L baseMvpMatrix = new Matrix4L();
 
 	protected final AbstractRasterizer raster;
@@ -48,6 +96,7 @@ public abstract class BoxOccluder {
 	protected final BoxTest[] partiallyClearTests = new BoxTest[128];
 	protected final BoxTest[] partiallyOccludedTests = new BoxTest[128];
 	protected final BoxDraw[] boxDraws = new BoxDraw[128];
+	protected final BoxTest[] boxTestAndDraws = new BoxTest[128];
 	private long viewX;
 	private long viewY;
 	private long viewZ;
@@ -64,6 +113,58 @@ public abstract class BoxOccluder {
 	private int maxSquaredChunkDistance;
 	private boolean hasNearOccluders = false;
 	private boolean drawNearOccluders = true;
+	private float saturationLimit = 1f;
+
+	private boolean reprojection = false;
+	/**
+	 * Coverage of regions beyond the reprojection radius in the view of {@link #historyMatrix}.
+	 * During a full redraw, holds coverage of nearer regions until the frame is reprojected.
+	 */
+	private AbstractRasterizer history;
+	private final Matrix4L historyMatrix = new Matrix4L();
+	private long historyX;
+	private long historyY;
+	private long historyZ;
+	/** Zero after a full redraw, then counts reprojected frames. */
+	private int reprojectedFrames;
+	/** True once coverage of nearer regions has been copied to history during a full redraw. */
+	private boolean nearCaptured;
+	/** False when history can't be separated from nearer regions or doesn't match the current settings. */
+	private boolean historyValid;
+	/** True when the current region is beyond the radius in a reprojected frame and so isn't drawn. */
+	private boolean skipRegionDraws;
+	private int reprojectionDx;
+	private int reprojectionDy;
+	private int reprojectionErosion;
+	/** Range of screen movement in pixels found by {@link #measureViewChange}. */
+	private float viewChangeMinX, viewChangeMaxX, viewChangeMinY, viewChangeMaxY;
+
+	private int viewTolerance = 0;
+	/** View the raster was last cleared or reprojected for. */
+	private final Matrix4L sceneMatrix = new Matrix4L();
+	private long sceneX;
+	private long sceneY;
+	private long sceneZ;
+
+	private int[] queuedRegions = new int[64 * QUEUE_STRIDE];
+	private int[][] queuedVisData = new int[64][];
+	private int queuedCount;
+	/** Queued regions before this index have been drawn. */
+	private int queueCursor;
+	/** False when regions were queued since the queue was last sorted. */
+	private boolean queueSorted = true;
+	private int completedOcclusionVersion;
+
+	private float occluderAreaThreshold = 0;
+	private boolean boundsPretest = false;
+	/** Boxes considered by {@link #drawQueuedLargest(int)}, and the queued region of each. */
+	private int[] candidateBoxes = new int[1024];
+	private int[] candidateRegions = new int[1024];
+	private long[] candidateKeys = new long[1024];
+
+	private boolean farOccluderLod = false;
+	/** Merged boxes from {@link OccluderLod#mergeBoxes(int[])}, keyed by vis data array identity. */
+	private final WeakHashMap<int[], int[]> farOccluders = new WeakHashMap<>();
 
 	public BoxOccluder(AbstractRasterizer raster) {
 		this.raster = raster;
@@ -120,7 +221,8 @@ public abstract class BoxOccluder {
 			return raster.isQuadPartiallyClear(V001, V101, V111, V011);
 		};
 
-		// NB: Split across two quads to give more evenly-sized test regions vs potentially one big and one very small
+		// NB: When two faces are visible, use the silhouette hexagon so tiles on the shared edge are only visited once
+		// Hexagons start on the shared edge so the raster can fall back to the two faces if rounding makes them concave.
 		partiallyClearTests[UP | EAST] = (x0, y0, z0, x1, y1, z1) -> {
 			raster.setupVertex(V010, x0, y1, z0);
 			raster.setupVertex(V011, x0, y1, z1);
@@ -128,8 +230,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V110, V010, V011, V111)
-					|| raster.isQuadPartiallyClear(V101, V100, V110, V111);
+			return raster.isHexagonPartiallyClear(V110, V010, V011, V111, V101, V100);
 		};
 
 		partiallyClearTests[UP | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -139,8 +240,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V110, V010, V011, V111)
-					|| raster.isQuadPartiallyClear(V000, V001, V011, V010);
+			return raster.isHexagonPartiallyClear(V010, V000, V001, V011, V111, V110);
 		};
 
 		partiallyClearTests[UP | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -150,8 +250,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V110, V010, V011, V111)
-					|| raster.isQuadPartiallyClear(V100, V000, V010, V110);
+			return raster.isHexagonPartiallyClear(V110, V100, V000, V010, V011, V111);
 		};
 
 		partiallyClearTests[UP | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -161,8 +260,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V110, V010, V011, V111)
-					|| raster.isQuadPartiallyClear(V001, V101, V111, V011);
+			return raster.isHexagonPartiallyClear(V011, V001, V101, V111, V110, V010);
 		};
 
 		partiallyClearTests[DOWN | EAST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -172,8 +270,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V000, V100, V101, V001)
-					|| raster.isQuadPartiallyClear(V101, V100, V110, V111);
+			return raster.isHexagonPartiallyClear(V100, V110, V111, V101, V001, V000);
 		};
 
 		partiallyClearTests[DOWN | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -183,8 +280,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
-			return raster.isQuadPartiallyClear(V000, V100, V101, V001)
-					|| raster.isQuadPartiallyClear(V000, V001, V011, V010);
+			return raster.isHexagonPartiallyClear(V000, V100, V101, V001, V011, V010);
 		};
 
 		partiallyClearTests[DOWN | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -194,8 +290,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
-			return raster.isQuadPartiallyClear(V000, V100, V101, V001)
-					|| raster.isQuadPartiallyClear(V100, V000, V010, V110);
+			return raster.isHexagonPartiallyClear(V000, V010, V110, V100, V101, V001);
 		};
 
 		partiallyClearTests[DOWN | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -205,8 +300,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V000, V100, V101, V001)
-					|| raster.isQuadPartiallyClear(V001, V101, V111, V011);
+			return raster.isHexagonPartiallyClear(V101, V111, V011, V001, V000, V100);
 		};
 
 		partiallyClearTests[NORTH | EAST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -216,8 +310,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V100, V000, V010, V110)
-					|| raster.isQuadPartiallyClear(V101, V100, V110, V111);
+			return raster.isHexagonPartiallyClear(V100, V000, V010, V110, V111, V101);
 		};
 
 		partiallyClearTests[NORTH | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -227,8 +320,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
-			return raster.isQuadPartiallyClear(V100, V000, V010, V110)
-					|| raster.isQuadPartiallyClear(V000, V001, V011, V010);
+			return raster.isHexagonPartiallyClear(V000, V001, V011, V010, V110, V100);
 		};
 
 		partiallyClearTests[SOUTH | EAST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -238,8 +330,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V001, V101, V111, V011)
-					|| raster.isQuadPartiallyClear(V101, V100, V110, V111);
+			return raster.isHexagonPartiallyClear(V101, V100, V110, V111, V011, V001);
 		};
 
 		partiallyClearTests[SOUTH | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -249,11 +340,10 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V001, V101, V111, V011)
-					|| raster.isQuadPartiallyClear(V000, V001, V011, V010);
+			return raster.isHexagonPartiallyClear(V001, V101, V111, V011, V010, V000);
 		};
 
-		// NB: When three faces are visible, omit nearest vertex and draw two quads instead of three.
+		// NB: When three faces are visible, omit nearest vertex and use the silhouette hexagon instead of three quads.
 
 		partiallyClearTests[UP | EAST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
 			raster.setupVertex(V000, x0, y0, z0);
@@ -262,8 +352,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V011, V111, V101, V100)
-					|| raster.isQuadPartiallyClear(V100, V000, V010, V011);
+			return raster.isHexagonPartiallyClear(V011, V111, V101, V100, V000, V010);
 		};
 
 		partiallyClearTests[UP | WEST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -273,8 +362,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V111, V110, V100, V000)
-					|| raster.isQuadPartiallyClear(V000, V001, V011, V111);
+			return raster.isHexagonPartiallyClear(V111, V110, V100, V000, V001, V011);
 		};
 
 		partiallyClearTests[UP | EAST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -284,8 +372,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
-			return raster.isQuadPartiallyClear(V010, V011, V001, V101)
-					|| raster.isQuadPartiallyClear(V101, V100, V110, V010);
+			return raster.isHexagonPartiallyClear(V010, V011, V001, V101, V100, V110);
 		};
 
 		partiallyClearTests[UP | WEST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -295,8 +382,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V110, V010, V000, V001)
-					|| raster.isQuadPartiallyClear(V001, V101, V111, V110);
+			return raster.isHexagonPartiallyClear(V110, V010, V000, V001, V101, V111);
 		};
 
 		partiallyClearTests[DOWN | EAST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -306,8 +392,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V001, V000, V010, V110)
-					|| raster.isQuadPartiallyClear(V110, V111, V101, V001);
+			return raster.isHexagonPartiallyClear(V001, V000, V010, V110, V111, V101);
 		};
 
 		partiallyClearTests[DOWN | WEST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -317,8 +402,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
-			return raster.isQuadPartiallyClear(V101, V001, V011, V010)
-					|| raster.isQuadPartiallyClear(V010, V110, V100, V101);
+			return raster.isHexagonPartiallyClear(V101, V001, V011, V010, V110, V100);
 		};
 
 		partiallyClearTests[DOWN | EAST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -328,8 +412,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V000, V100, V110, V111)
-					|| raster.isQuadPartiallyClear(V111, V011, V001, V000);
+			return raster.isHexagonPartiallyClear(V000, V100, V110, V111, V011, V001);
 		};
 
 		partiallyClearTests[DOWN | WEST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -339,8 +422,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyClear(V100, V101, V111, V011)
-					|| raster.isQuadPartiallyClear(V011, V010, V000, V100);
+			return raster.isHexagonPartiallyClear(V100, V101, V111, V011, V010, V000);
 		};
 
 		////
@@ -397,7 +479,8 @@ public abstract class BoxOccluder {
 			return raster.isQuadPartiallyOccluded(V001, V101, V111, V011);
 		};
 
-		// NB: Split across two quads to give more evenly-sized test regions vs potentially one big and one very small
+		// NB: When two faces are visible, use the silhouette hexagon so tiles on the shared edge are only visited once
+		// Hexagons start on the shared edge so the raster can fall back to the two faces if rounding makes them concave.
 		partiallyOccludedTests[UP | EAST] = (x0, y0, z0, x1, y1, z1) -> {
 			raster.setupVertex(V010, x0, y1, z0);
 			raster.setupVertex(V011, x0, y1, z1);
@@ -405,8 +488,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V110, V010, V011, V111)
-					|| raster.isQuadPartiallyOccluded(V101, V100, V110, V111);
+			return raster.isHexagonPartiallyOccluded(V110, V010, V011, V111, V101, V100);
 		};
 
 		partiallyOccludedTests[UP | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -416,8 +498,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V110, V010, V011, V111)
-					|| raster.isQuadPartiallyOccluded(V000, V001, V011, V010);
+			return raster.isHexagonPartiallyOccluded(V010, V000, V001, V011, V111, V110);
 		};
 
 		partiallyOccludedTests[UP | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -427,8 +508,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V110, V010, V011, V111)
-					|| raster.isQuadPartiallyOccluded(V100, V000, V010, V110);
+			return raster.isHexagonPartiallyOccluded(V110, V100, V000, V010, V011, V111);
 		};
 
 		partiallyOccludedTests[UP | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -438,8 +518,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V110, V010, V011, V111)
-					|| raster.isQuadPartiallyOccluded(V001, V101, V111, V011);
+			return raster.isHexagonPartiallyOccluded(V011, V001, V101, V111, V110, V010);
 		};
 
 		partiallyOccludedTests[DOWN | EAST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -449,8 +528,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V000, V100, V101, V001)
-					|| raster.isQuadPartiallyOccluded(V101, V100, V110, V111);
+			return raster.isHexagonPartiallyOccluded(V100, V110, V111, V101, V001, V000);
 		};
 
 		partiallyOccludedTests[DOWN | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -460,8 +538,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
-			return raster.isQuadPartiallyOccluded(V000, V100, V101, V001)
-					|| raster.isQuadPartiallyOccluded(V000, V001, V011, V010);
+			return raster.isHexagonPartiallyOccluded(V000, V100, V101, V001, V011, V010);
 		};
 
 		partiallyOccludedTests[DOWN | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -471,8 +548,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
-			return raster.isQuadPartiallyOccluded(V000, V100, V101, V001)
-					|| raster.isQuadPartiallyOccluded(V100, V000, V010, V110);
+			return raster.isHexagonPartiallyOccluded(V000, V010, V110, V100, V101, V001);
 		};
 
 		partiallyOccludedTests[DOWN | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -482,8 +558,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V000, V100, V101, V001)
-					|| raster.isQuadPartiallyOccluded(V001, V101, V111, V011);
+			return raster.isHexagonPartiallyOccluded(V101, V111, V011, V001, V000, V100);
 		};
 
 		partiallyOccludedTests[NORTH | EAST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -493,8 +568,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V100, V000, V010, V110)
-					|| raster.isQuadPartiallyOccluded(V101, V100, V110, V111);
+			return raster.isHexagonPartiallyOccluded(V100, V000, V010, V110, V111, V101);
 		};
 
 		partiallyOccludedTests[NORTH | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -504,8 +578,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
-			return raster.isQuadPartiallyOccluded(V100, V000, V010, V110)
-					|| raster.isQuadPartiallyOccluded(V000, V001, V011, V010);
+			return raster.isHexagonPartiallyOccluded(V000, V001, V011, V010, V110, V100);
 		};
 
 		partiallyOccludedTests[SOUTH | EAST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -515,8 +588,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V001, V101, V111, V011)
-					|| raster.isQuadPartiallyOccluded(V101, V100, V110, V111);
+			return raster.isHexagonPartiallyOccluded(V101, V100, V110, V111, V011, V001);
 		};
 
 		partiallyOccludedTests[SOUTH | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -526,11 +598,10 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V001, V101, V111, V011)
-					|| raster.isQuadPartiallyOccluded(V000, V001, V011, V010);
+			return raster.isHexagonPartiallyOccluded(V001, V101, V111, V011, V010, V000);
 		};
 
-		// NB: When three faces are visible, omit nearest vertex and draw two quads instead of three.
+		// NB: When three faces are visible, omit nearest vertex and use the silhouette hexagon instead of three quads.
 
 		partiallyOccludedTests[UP | EAST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
 			raster.setupVertex(V000, x0, y0, z0);
@@ -539,8 +610,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V011, V111, V101, V100)
-					|| raster.isQuadPartiallyOccluded(V100, V000, V010, V011);
+			return raster.isHexagonPartiallyOccluded(V011, V111, V101, V100, V000, V010);
 		};
 
 		partiallyOccludedTests[UP | WEST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -550,8 +620,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V111, V110, V100, V000)
-					|| raster.isQuadPartiallyOccluded(V000, V001, V011, V111);
+			return raster.isHexagonPartiallyOccluded(V111, V110, V100, V000, V001, V011);
 		};
 
 		partiallyOccludedTests[UP | EAST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -561,8 +630,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
-			return raster.isQuadPartiallyOccluded(V010, V011, V001, V101)
-					|| raster.isQuadPartiallyOccluded(V101, V100, V110, V010);
+			return raster.isHexagonPartiallyOccluded(V010, V011, V001, V101, V100, V110);
 		};
 
 		partiallyOccludedTests[UP | WEST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -572,8 +640,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V110, V010, V000, V001)
-					|| raster.isQuadPartiallyOccluded(V001, V101, V111, V110);
+			return raster.isHexagonPartiallyOccluded(V110, V010, V000, V001, V101, V111);
 		};
 
 		partiallyOccludedTests[DOWN | EAST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -583,8 +650,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V001, V000, V010, V110)
-					|| raster.isQuadPartiallyOccluded(V110, V111, V101, V001);
+			return raster.isHexagonPartiallyOccluded(V001, V000, V010, V110, V111, V101);
 		};
 
 		partiallyOccludedTests[DOWN | WEST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -594,8 +660,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
-			return raster.isQuadPartiallyOccluded(V101, V001, V011, V010)
-					|| raster.isQuadPartiallyOccluded(V010, V110, V100, V101);
+			return raster.isHexagonPartiallyOccluded(V101, V001, V011, V010, V110, V100);
 		};
 
 		partiallyOccludedTests[DOWN | EAST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -605,8 +670,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V000, V100, V110, V111)
-					|| raster.isQuadPartiallyOccluded(V111, V011, V001, V000);
+			return raster.isHexagonPartiallyOccluded(V000, V100, V110, V111, V011, V001);
 		};
 
 		partiallyOccludedTests[DOWN | WEST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -616,8 +680,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			return raster.isQuadPartiallyOccluded(V100, V101, V111, V011)
-					|| raster.isQuadPartiallyOccluded(V011, V010, V000, V100);
+			return raster.isHexagonPartiallyOccluded(V100, V101, V111, V011, V010, V000);
 		};
 
 		////
@@ -674,7 +737,8 @@ public abstract class BoxOccluder {
 			raster.drawQuad(V001, V101, V111, V011);
 		};
 
-		// NB: Split across two quads to give more evenly-sized test regions vs potentially one big and one very small
+		// NB: When two faces are visible, use the silhouette hexagon so tiles on the shared edge are only visited once
+		// Hexagons start on the shared edge so the raster can fall back to the two faces if rounding makes them concave.
 		boxDraws[UP | EAST] = (x0, y0, z0, x1, y1, z1) -> {
 			raster.setupVertex(V010, x0, y1, z0);
 			raster.setupVertex(V011, x0, y1, z1);
@@ -682,8 +746,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V110, V010, V011, V111);
-			raster.drawQuad(V101, V100, V110, V111);
+			raster.drawHexagon(V110, V010, V011, V111, V101, V100);
 		};
 
 		boxDraws[UP | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -693,8 +756,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V110, V010, V011, V111);
-			raster.drawQuad(V000, V001, V011, V010);
+			raster.drawHexagon(V010, V000, V001, V011, V111, V110);
 		};
 
 		boxDraws[UP | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -704,8 +766,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V110, V010, V011, V111);
-			raster.drawQuad(V100, V000, V010, V110);
+			raster.drawHexagon(V110, V100, V000, V010, V011, V111);
 		};
 
 		boxDraws[UP | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -715,8 +776,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V110, V010, V011, V111);
-			raster.drawQuad(V001, V101, V111, V011);
+			raster.drawHexagon(V011, V001, V101, V111, V110, V010);
 		};
 
 		boxDraws[DOWN | EAST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -726,8 +786,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V000, V100, V101, V001);
-			raster.drawQuad(V101, V100, V110, V111);
+			raster.drawHexagon(V100, V110, V111, V101, V001, V000);
 		};
 
 		boxDraws[DOWN | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -737,8 +796,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
-			raster.drawQuad(V000, V100, V101, V001);
-			raster.drawQuad(V000, V001, V011, V010);
+			raster.drawHexagon(V000, V100, V101, V001, V011, V010);
 		};
 
 		boxDraws[DOWN | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -748,8 +806,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
-			raster.drawQuad(V000, V100, V101, V001);
-			raster.drawQuad(V100, V000, V010, V110);
+			raster.drawHexagon(V000, V010, V110, V100, V101, V001);
 		};
 
 		boxDraws[DOWN | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -759,8 +816,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V000, V100, V101, V001);
-			raster.drawQuad(V001, V101, V111, V011);
+			raster.drawHexagon(V101, V111, V011, V001, V000, V100);
 		};
 
 		boxDraws[NORTH | EAST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -770,8 +826,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V100, V000, V010, V110);
-			raster.drawQuad(V101, V100, V110, V111);
+			raster.drawHexagon(V100, V000, V010, V110, V111, V101);
 		};
 
 		boxDraws[NORTH | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -781,8 +836,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
-			raster.drawQuad(V100, V000, V010, V110);
-			raster.drawQuad(V000, V001, V011, V010);
+			raster.drawHexagon(V000, V001, V011, V010, V110, V100);
 		};
 
 		boxDraws[SOUTH | EAST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -792,8 +846,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V001, V101, V111, V011);
-			raster.drawQuad(V101, V100, V110, V111);
+			raster.drawHexagon(V101, V100, V110, V111, V011, V001);
 		};
 
 		boxDraws[SOUTH | WEST] = (x0, y0, z0, x1, y1, z1) -> {
@@ -803,11 +856,10 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V011, x0, y1, z1);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V001, V101, V111, V011);
-			raster.drawQuad(V000, V001, V011, V010);
+			raster.drawHexagon(V001, V101, V111, V011, V010, V000);
 		};
 
-		// NB: When three faces are visible, omit nearest vertex and draw two quads instead of three.
+		// NB: When three faces are visible, omit nearest vertex and use the silhouette hexagon instead of three quads.
 
 		boxDraws[UP | EAST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
 			raster.setupVertex(V000, x0, y0, z0);
@@ -816,8 +868,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V011, V111, V101, V100);
-			raster.drawQuad(V100, V000, V010, V011);
+			raster.drawHexagon(V011, V111, V101, V100, V000, V010);
 		};
 
 		boxDraws[UP | WEST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -827,8 +878,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V111, V110, V100, V000);
-			raster.drawQuad(V000, V001, V011, V111);
+			raster.drawHexagon(V111, V110, V100, V000, V001, V011);
 		};
 
 		boxDraws[UP | EAST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -838,8 +888,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
-			raster.drawQuad(V010, V011, V001, V101);
-			raster.drawQuad(V101, V100, V110, V010);
+			raster.drawHexagon(V010, V011, V001, V101, V100, V110);
 		};
 
 		boxDraws[UP | WEST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -849,8 +898,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V110, V010, V000, V001);
-			raster.drawQuad(V001, V101, V111, V110);
+			raster.drawHexagon(V110, V010, V000, V001, V101, V111);
 		};
 
 		boxDraws[DOWN | EAST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -860,8 +908,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V001, V000, V010, V110);
-			raster.drawQuad(V110, V111, V101, V001);
+			raster.drawHexagon(V001, V000, V010, V110, V111, V101);
 		};
 
 		boxDraws[DOWN | WEST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -871,8 +918,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V110, x1, y1, z0);
-			raster.drawQuad(V101, V001, V011, V010);
-			raster.drawQuad(V010, V110, V100, V101);
+			raster.drawHexagon(V101, V001, V011, V010, V110, V100);
 		};
 
 		boxDraws[DOWN | EAST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -882,8 +928,7 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V110, x1, y1, z0);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V000, V100, V110, V111);
-			raster.drawQuad(V111, V011, V001, V000);
+			raster.drawHexagon(V000, V100, V110, V111, V011, V001);
 		};
 
 		boxDraws[DOWN | WEST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
@@ -893,8 +938,265 @@ public abstract class BoxOccluder {
 			raster.setupVertex(V100, x1, y0, z0);
 			raster.setupVertex(V101, x1, y0, z1);
 			raster.setupVertex(V111, x1, y1, z1);
-			raster.drawQuad(V100, V101, V111, V011);
-			raster.drawQuad(V011, V010, V000, V100);
+			raster.drawHexagon(V100, V101, V111, V011, V010, V000);
+		};
+
+		////
+
+		boxTestAndDraws[0] = (x0, y0, z0, x1, y1, z1) -> {
+			return false;
+		};
+
+		boxTestAndDraws[UP] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawQuad(V110, V010, V011, V111);
+		};
+
+		boxTestAndDraws[DOWN] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			return raster.testAndDrawQuad(V000, V100, V101, V001);
+		};
+
+		boxTestAndDraws[EAST] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawQuad(V101, V100, V110, V111);
+		};
+
+		boxTestAndDraws[WEST] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			return raster.testAndDrawQuad(V000, V001, V011, V010);
+		};
+
+		boxTestAndDraws[NORTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V110, x1, y1, z0);
+			return raster.testAndDrawQuad(V100, V000, V010, V110);
+		};
+
+		boxTestAndDraws[SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawQuad(V001, V101, V111, V011);
+		};
+
+		// NB: When two faces are visible, use the silhouette hexagon so tiles on the shared edge are only visited once
+		// Hexagons start on the shared edge so the raster can fall back to the two faces if rounding makes them concave.
+		boxTestAndDraws[UP | EAST] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V110, V010, V011, V111, V101, V100);
+		};
+
+		boxTestAndDraws[UP | WEST] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V010, V000, V001, V011, V111, V110);
+		};
+
+		boxTestAndDraws[UP | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V110, V100, V000, V010, V011, V111);
+		};
+
+		boxTestAndDraws[UP | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V011, V001, V101, V111, V110, V010);
+		};
+
+		boxTestAndDraws[DOWN | EAST] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V100, V110, V111, V101, V001, V000);
+		};
+
+		boxTestAndDraws[DOWN | WEST] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			return raster.testAndDrawHexagon(V000, V100, V101, V001, V011, V010);
+		};
+
+		boxTestAndDraws[DOWN | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			return raster.testAndDrawHexagon(V000, V010, V110, V100, V101, V001);
+		};
+
+		boxTestAndDraws[DOWN | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V101, V111, V011, V001, V000, V100);
+		};
+
+		boxTestAndDraws[NORTH | EAST] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V100, V000, V010, V110, V111, V101);
+		};
+
+		boxTestAndDraws[NORTH | WEST] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V110, x1, y1, z0);
+			return raster.testAndDrawHexagon(V000, V001, V011, V010, V110, V100);
+		};
+
+		boxTestAndDraws[SOUTH | EAST] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V101, V100, V110, V111, V011, V001);
+		};
+
+		boxTestAndDraws[SOUTH | WEST] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V001, V101, V111, V011, V010, V000);
+		};
+
+		// NB: When three faces are visible, omit nearest vertex and use the silhouette hexagon instead of three quads.
+
+		boxTestAndDraws[UP | EAST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V011, V111, V101, V100, V000, V010);
+		};
+
+		boxTestAndDraws[UP | WEST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V111, V110, V100, V000, V001, V011);
+		};
+
+		boxTestAndDraws[UP | EAST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			return raster.testAndDrawHexagon(V010, V011, V001, V101, V100, V110);
+		};
+
+		boxTestAndDraws[UP | WEST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V110, V010, V000, V001, V101, V111);
+		};
+
+		boxTestAndDraws[DOWN | EAST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V001, V000, V010, V110, V111, V101);
+		};
+
+		boxTestAndDraws[DOWN | WEST | NORTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V110, x1, y1, z0);
+			return raster.testAndDrawHexagon(V101, V001, V011, V010, V110, V100);
+		};
+
+		boxTestAndDraws[DOWN | EAST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V001, x0, y0, z1);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V110, x1, y1, z0);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V000, V100, V110, V111, V011, V001);
+		};
+
+		boxTestAndDraws[DOWN | WEST | SOUTH] = (x0, y0, z0, x1, y1, z1) -> {
+			raster.setupVertex(V000, x0, y0, z0);
+			raster.setupVertex(V010, x0, y1, z0);
+			raster.setupVertex(V011, x0, y1, z1);
+			raster.setupVertex(V100, x1, y0, z0);
+			raster.setupVertex(V101, x1, y0, z1);
+			raster.setupVertex(V111, x1, y1, z1);
+			return raster.testAndDrawHexagon(V100, V101, V111, V011, V010, V000);
 		};
 	}
 
@@ -923,17 +1225,35 @@ public abstract class BoxOccluder {
 		maxSquaredChunkDistance = source.maxSquaredChunkDistance;
 
 		forceRedraw = source.forceRedraw;
+		sceneMatrix.copyFrom(source.sceneMatrix);
+		sceneX = source.sceneX;
+		sceneY = source.sceneY;
+		sceneZ = source.sceneZ;
+		historyValid = false;
+		skipRegionDraws = false;
 	}
 
 	/**
 	 * Incremented each time the occluder is cleared and redrawn.
 	 * Previously tested regions can reuse test results if their version matches.
-	 * However, they must still be drawn (if visible) if indicated by {@link #clearSceneIfNeeded(int, int)}.
+	 * However, they must still be drawn (if visible) when {@link #prepareScene} returns true.
+	 * Results of tests made while {@link #completedOcclusionVersion()} is behind are provisional.
 	 */
 	public final int occlusionVersion() {
 		return occlusionVersion;
 	}
 
+	/**
+	 * Same as {@link #occlusionVersion()} unless occluders queued by {@link #queueOccluders}
+	 * are still waiting to be drawn, in which case it is the last version that was drawn
+	 * completely. Tests made while the two differ are provisional: they can report a box
+	 * visible that the finished scene would occlude, but never the reverse. Callers that
+	 * reuse test results should test such regions again once the versions match.
+	 */
+	public final int completedOcclusionVersion() {
+		return queueCursor == queuedCount ? occlusionVersion : completedOcclusionVersion;
+	}
+
 	/**
 	 * For perspective occluders, controls if near occluders are drawn.
 	 * Has no effect on testing.  Meant to reduce flickering and gaps
@@ -945,16 +1265,157 @@ public abstract class BoxOccluder {
 	}
 
 	/**
-	 * Force update to new version.
+	 * When true, the rasterizer keeps a conservative depth for occluded pixels
+	 * and tests only count occluders in front of the tested box.  This means
+	 * occluders no longer need to be drawn front-to-back or interleaved with tests.
+	 * Defaults to false. Changing the setting forces a redraw.
 	 */
-	public final void invalidate() {
-		forceRedraw = true;
+	public void depthTesting(boolean val) {
+		if (raster.depthEnabled != val) {
+			raster.enableDepth(val);
+			forceRedraw = true;
+		}
 	}
 
-	public final void prepareRegion(int originX, int originY, int originZ, int occlusionRange, int squaredChunkDistance) {
-		this.occlusionRange = occlusionRange;
-		regionSquaredChunkDist = squaredChunkDistance;
-
+	/**
+	 * When true, occluders only cover pixels they fully contain. Tests still count any
+	 * pixel whose center is inside the tested box, so test boxes no longer need fuzz to
+	 * avoid false occlusion along occluder edges. Costs a little occlusion at silhouettes.
+	 * Defaults to false. Changing the setting forces a redraw.
+	 */
+	public void innerOccluders(boolean val) {
+		if (raster.innerCoverage != val) {
+			raster.innerCoverage = val;
+			forceRedraw = true;
+		}
+	}
+
+	/**
+	 * When true, box tests first check the screen rectangle that bounds the box against summaries of
+	 * full tiles, and only rasterize the exact silhouette when some tile in the rectangle isn't occluded.
+	 * Saves time when most hidden boxes are in fully occluded areas, but costs a little for other boxes,
+	 * so it only pays off in scenes that are mostly occluded.
+	 * Never changes test results. Defaults to false.
+	 */
+	public void boundsPretest(boolean val) {
+		boundsPretest = val;
+	}
+
+	/**
+	 * {@link #occlude(int[])} skips drawing once this fraction of the screen is fully occluded.
+	 * Values less than 1 save time in scenes that are nearly full, such as caves, at the cost of
+	 * a few tests passing that could have failed.  Defaults to 1, which only skips drawing
+	 * when nothing more can be occluded.  Not used with {@link #depthTesting(boolean)}
+	 * because nearer occluders still matter when the screen is full.
+	 */
+	public void saturationLimit(float limit) {
+		saturationLimit = limit;
+	}
+
+	/**
+	 * When true, occluders are projected right away but drawn to the raster later, one 64x64 pixel
+	 * block at a time, which keeps tile memory in cache when thousands of occluders are drawn.
+	 * Pending occluders are drawn before any test that overlaps a block they touch, so results are
+	 * the same as drawing each one immediately.  Defaults to false.
+	 */
+	public void deferredDrawing(boolean val) {
+		raster.deferDraws(val);
+	}
+
+	/**
+	 * When a pool is given, occluders are still projected on the calling thread but are drawn
+	 * to the raster later, one row of 64-pixel blocks per task.  Pending occluders are drawn
+	 * before any test that overlaps them, same as {@link #deferredDrawing(boolean)}. Saves the
+	 * most time when many occluders are drawn between tests, such as after a teleport. Defaults
+	 * to null, which draws each occluder on the calling thread.
+	 */
+	public void parallelDrawing(ForkJoinPool pool) {
+		raster.drawInParallel(pool);
+	}
+
+	/**
+	 * When true, small view changes move coverage of the previous frame into the new view instead of
+	 * clearing it: a pixel shift for camera translation and rotation, eroded enough to cover parallax
+	 * and the error of treating rotation as a shift. Regions more than six chunks away are then
+	 * not drawn by {@link #occlude(int[])} or {@link #testAndOccludeBox(int)}, although they must
+	 * still be tested, so only nearby occluders are redrawn. Larger changes, and any change after
+	 * eight reprojections in a row, still redraw everything. Reprojected coverage stays inside what
+	 * occluders cover in the new view, as long as regions are drawn nearest first, so it costs
+	 * some occlusion but doesn't hide anything visible. Only for perspective projection and not used with
+	 * {@link #depthTesting(boolean)}. Defaults to false. Changing the setting forces a redraw.
+	 */
+	public void reprojection(boolean val) {
+		if (reprojection != val) {
+			reprojection = val;
+			historyValid = false;
+			skipRegionDraws = false;
+			forceRedraw = true;
+		}
+	}
+
+	/**
+	 * View changes that move no occluder on screen by more than this many subpixels, 1/16 of a
+	 * pixel each, keep the raster and {@link #occlusionVersion()} as they are. Meant for head bob and
+	 * mouse jitter. The view of the kept raster stays in use for drawing and testing until a
+	 * larger change, so error never accumulates past the tolerance. Any camera movement is a larger
+	 * change when near occluders were drawn, because their parallax has no useful bound. Defaults to zero,
+	 * which redraws on every view change.
+	 */
+	public void viewTolerance(int subpixels) {
+		viewTolerance = subpixels;
+	}
+
+	/**
+	 * When true, {@link #occlude(int[])} draws regions at {@link PackedBox#RANGE_FAR} range or
+	 * beyond with a few merged boxes from {@link OccluderLod#mergeBoxes(int[])} instead of their own
+	 * boxes. Merged boxes are inside the original boxes, so this costs a little occlusion but
+	 * doesn't hide anything visible. They are made the first time each vis data array is drawn
+	 * and kept until the array is no longer referenced, so arrays must not change after they
+	 * are drawn. Defaults to false. Changing the setting forces a redraw.
+	 */
+	public void farOccluderLod(boolean val) {
+		if (farOccluderLod != val) {
+			farOccluderLod = val;
+			farOccluders.clear();
+			forceRedraw = true;
+		}
+	}
+
+	/**
+	 * Boxes with an {@link #occluderImportance(int)} below this aren't drawn as occluders, although
+	 * they are still tested. Most occlusion comes from a few large occluders and small ones cost
+	 * nearly as much to draw. Defaults to zero, which draws every box.
+	 */
+	public void occluderAreaThreshold(float pixels) {
+		occluderAreaThreshold = pixels;
+	}
+
+	/** Fraction of the screen that is fully occluded. See {@link AbstractRasterizer#saturation()}. */
+	public final float saturation() {
+		raster.flushDraws();
+		return raster.saturation();
+	}
+
+	/**
+	 * Force update to new version.
+	 */
+	public final void invalidate() {
+		forceRedraw = true;
+	}
+
+	public final void prepareRegion(int originX, int originY, int originZ, int occlusionRange, int squaredChunkDistance) {
+		this.occlusionRange = occlusionRange;
+		regionSquaredChunkDist = squaredChunkDistance;
+
+		if (reprojection) {
+			prepareReprojectionRegion(squaredChunkDistance > REPROJECTION_CHUNK_RADIUS * REPROJECTION_CHUNK_RADIUS);
+		}
+
+		setRegionOrigin(originX, originY, originZ);
+	}
+
+	/** Sets offsets and the raster matrix for a region without changing any other state. */
+	private void setRegionOrigin(int originX, int originY, int originZ) {
 		// PERF: could perhaps reuse CameraRelativeCenter values in BuildRenderRegion that are used by Frustum
 		offsetX = (int) ((originX << CAMERA_PRECISION_BITS) - viewX);
 		offsetY = (int) ((originY << CAMERA_PRECISION_BITS) - viewY);
@@ -965,6 +1426,197 @@ public abstract class BoxOccluder {
 		mvpMatrix.translate(offsetX, offsetY, offsetZ, CAMERA_PRECISION_BITS);
 	}
 
+	/**
+	 * Adds the occluders of a region to be drawn later by {@link #drawQueued(long)}, instead of
+	 * calling {@link #prepareRegion} and {@link #occlude(int[])} right away. Parameters are the same
+	 * as those methods. The array is kept, not copied, and must not change until it is drawn.
+	 * Queued regions are dropped when {@link #prepareScene} returns true.
+	 */
+	public final void queueOccluders(int originX, int originY, int originZ, int occlusionRange, int squaredChunkDistance, int[] visData) {
+		if (visData.length <= 1) {
+			return;
+		}
+
+		if (queuedCount == queuedVisData.length) {
+			queuedVisData = Arrays.copyOf(queuedVisData, queuedCount * 2);
+			queuedRegions = Arrays.copyOf(queuedRegions, queuedCount * 2 * QUEUE_STRIDE);
+		}
+
+		final int base = queuedCount * QUEUE_STRIDE;
+		queuedRegions[base + QUEUE_ORIGIN_X] = originX;
+		queuedRegions[base + QUEUE_ORIGIN_Y] = originY;
+		queuedRegions[base + QUEUE_ORIGIN_Z] = originZ;
+		queuedRegions[base + QUEUE_OCCLUSION_RANGE] = occlusionRange;
+		queuedRegions[base + QUEUE_SQUARED_CHUNK_DISTANCE] = squaredChunkDistance;
+		queuedVisData[queuedCount++] = visData;
+		queueSorted = false;
+	}
+
+	/**
+	 * Draws queued regions nearest first until all are drawn or the budget is spent, and returns
+	 * the number of regions still waiting. Call again, in this frame or a later one, to continue
+	 * where it stopped.  Time is checked after each region, so the budget can be exceeded by the
+	 * time to draw one region and at least one region is always drawn.  Pending draws are flushed
+	 * before returning when drawing is deferred or parallel.
+	 *
+	 * <p>Leaves the last queued region prepared, so call {@link #prepareRegion} again before
+	 * testing.  See {@link #completedOcclusionVersion()} for which test results are final.
+	 */
+	public final int drawQueued(long budgetNanos) {
+		final long start = System.nanoTime();
+
+		if (!queueSorted) {
+			sortQueue();
+		}
+
+		final int[] regions = queuedRegions;
+
+		while (queueCursor < queuedCount) {
+			final int base = queueCursor * QUEUE_STRIDE;
+
+			prepareRegion(regions[base + QUEUE_ORIGIN_X], regions[base + QUEUE_ORIGIN_Y], regions[base + QUEUE_ORIGIN_Z],
+					regions[base + QUEUE_OCCLUSION_RANGE], regions[base + QUEUE_SQUARED_CHUNK_DISTANCE]);
+
+			occlude(queuedVisData[queueCursor]);
+			queuedVisData[queueCursor++] = null;
+
+			if (System.nanoTime() - start >= budgetNanos) {
+				break;
+			}
+		}
+
+		raster.flushDraws();
+
+		if (queueCursor == queuedCount) {
+			completedOcclusionVersion = occlusionVersion;
+			clearQueue();
+			return 0;
+		} else {
+			return queuedCount - queueCursor;
+		}
+	}
+
+	/**
+	 * Draws only the queued boxes with the highest {@link #occluderImportance(int)}, up to the given
+	 * number, and drops the rest of the queue. Boxes are chosen by the same rules as {@link #occlude(int[])}
+	 * and drawn in queue order, nearest regions first. Returns the number of boxes drawn.
+	 * Like {@link #drawQueued(long)}, leaves the last region drawn prepared.
+	 */
+	public final int drawQueuedLargest(int maxOccluders) {
+		if (!queueSorted) {
+			sortQueue();
+		}
+
+		final int[] regions = queuedRegions;
+		int candidateCount = 0;
+
+		if (raster.depthEnabled || raster.saturation() < saturationLimit) {
+			for (int q = queueCursor; q < queuedCount; ++q) {
+				final int base = q * QUEUE_STRIDE;
+				final int occlusionRange = regions[base + QUEUE_OCCLUSION_RANGE];
+
+				if (isReprojectedRegion(regions[base + QUEUE_SQUARED_CHUNK_DISTANCE])) {
+					continue;
+				}
+
+				setRegionOrigin(regions[base + QUEUE_ORIGIN_X], regions[base + QUEUE_ORIGIN_Y], regions[base + QUEUE_ORIGIN_Z]);
+				final int[] visData = regionOccluders(queuedVisData[q], occlusionRange);
+				final int limit = visData.length;
+
+				for (int i = 1; i < limit; i++) {
+					final int box = visData[i];
+
+					if (occlusionRange > PackedBox.range(box)) {
+						break;
+					}
+
+					if (candidateCount == candidateBoxes.length) {
+						candidateBoxes = Arrays.copyOf(candidateBoxes, candidateCount * 2);
+						candidateRegions = Arrays.copyOf(candidateRegions, candidateCount * 2);
+						candidateKeys = Arrays.copyOf(candidateKeys, candidateCount * 2);
+					}
+
+					candidateBoxes[candidateCount] = box;
+					candidateRegions[candidateCount] = q;
+					// importance is never negative, so float bits sort the same as values
+					candidateKeys[candidateCount] = ((long) Float.floatToRawIntBits(occluderImportance(box)) << 32) | candidateCount;
+					++candidateCount;
+				}
+			}
+		}
+
+		final long[] keys = candidateKeys;
+		final int drawCount = Math.min(candidateCount, Math.max(0, maxOccluders));
+
+		if (drawCount < candidateCount) {
+			// keep the most important, then put them back in queue order
+			Arrays.sort(keys, 0, candidateCount);
+			System.arraycopy(keys, candidateCount - drawCount, keys, 0, drawCount);
+
+			for (int i = 0; i < drawCount; ++i) {
+				keys[i] &= 0xFFFFFFFFL;
+			}
+
+			Arrays.sort(keys, 0, drawCount);
+		}
+
+		int region = -1;
+
+		for (int i = 0; i < drawCount; ++i) {
+			final int candidate = (int) keys[i];
+			final int q = candidateRegions[candidate];
+
+			if (q != region) {
+				final int base = q * QUEUE_STRIDE;
+				prepareRegion(regions[base + QUEUE_ORIGIN_X], regions[base + QUEUE_ORIGIN_Y], regions[base + QUEUE_ORIGIN_Z],
+						regions[base + QUEUE_OCCLUSION_RANGE], regions[base + QUEUE_SQUARED_CHUNK_DISTANCE]);
+				region = q;
+
+				if (maxSquaredChunkDistance < regionSquaredChunkDist) {
+					maxSquaredChunkDistance = regionSquaredChunkDist;
+				}
+			}
+
+			occludeBox(candidateBoxes[candidate]);
+		}
+
+		raster.flushDraws();
+		completedOcclusionVersion = occlusionVersion;
+		clearQueue();
+		return drawCount;
+	}
+
+	/** Sorts regions not yet drawn by distance, nearest first. */
+	private void sortQueue() {
+		final int start = queueCursor;
+		final int count = queuedCount - start;
+		final long[] keys = new long[count];
+
+		for (int i = 0; i < count; ++i) {
+			keys[i] = ((long) queuedRegions[(start + i) * QUEUE_STRIDE + QUEUE_SQUARED_CHUNK_DISTANCE] << 32) | i;
+		}
+
+		Arrays.sort(keys);
+
+		final int[] regions = Arrays.copyOfRange(queuedRegions, start * QUEUE_STRIDE, queuedCount * QUEUE_STRIDE);
+		final int[][] visData = Arrays.copyOfRange(queuedVisData, start, queuedCount);
+
+		for (int i = 0; i < count; ++i) {
+			final int from = (int) keys[i];
+			System.arraycopy(regions, from * QUEUE_STRIDE, queuedRegions, (start + i) * QUEUE_STRIDE, QUEUE_STRIDE);
+			queuedVisData[start + i] = visData[from];
+		}
+
+		queueSorted = true;
+	}
+
+	private void clearQueue() {
+		Arrays.fill(queuedVisData, queueCursor, queuedCount, null);
+		queuedCount = 0;
+		queueCursor = 0;
+		queueSorted = true;
+	}
+
 	/**
 	 * Check if needs redrawn and prep for redraw if so.
 	 * When false, regions should be drawn only if their occluder version is not current.
@@ -987,19 +1639,227 @@ public abstract class BoxOccluder {
 			viewZ = Math.round(cameraZ * CAMERA_PRECISION_UNITY);
 		}
 
+		final boolean forceRedraw = this.forceRedraw;
+
+		if (!forceRedraw && this.viewVersion != viewVersion && viewTolerance > 0 && isViewChangeTolerable()) {
+			this.viewVersion = viewVersion;
+			baseMvpMatrix.copyFrom(sceneMatrix);
+			viewX = sceneX;
+			viewY = sceneY;
+			viewZ = sceneZ;
+			return false;
+		}
+
 		if (forceRedraw || this.viewVersion != viewVersion) {
 			this.viewVersion = viewVersion;
-			System.arraycopy(EMPTY_BITS, 0, raster.tiles, 0, TILE_COUNT);
-			forceRedraw = false;
+			this.forceRedraw = false;
 			hasNearOccluders = false;
 			maxSquaredChunkDistance = 0;
+			skipRegionDraws = false;
 			++occlusionVersion;
+
+			if (queueCursor != queuedCount) {
+				clearQueue();
+			}
+
+			if (!reprojection || forceRedraw || !reprojectScene()) {
+				raster.clear();
+
+				if (reprojection) {
+					startHistory();
+				}
+			}
+
+			sceneMatrix.copyFrom(baseMvpMatrix);
+			sceneX = viewX;
+			sceneY = viewY;
+			sceneZ = viewZ;
 			return true;
 		} else {
 			return false;
 		}
 	}
 
+	/** Begins a full redraw that can be reprojected later. */
+	private void startHistory() {
+		if (history == null) {
+			history = new OrthoRasterizer(raster.pixelWidth, raster.pixelHeight);
+		}
+
+		historyMatrix.copyFrom(baseMvpMatrix);
+		historyX = viewX;
+		historyY = viewY;
+		historyZ = viewZ;
+		reprojectedFrames = 0;
+		nearCaptured = false;
+		historyValid = !raster.depthEnabled;
+	}
+
+	/**
+	 * During a full redraw, copies what nearer regions drew to history when the first region beyond
+	 * the radius is prepared, so it can be removed before reprojecting. History can't be separated
+	 * if a nearer region is prepared after that. In reprojected frames, regions beyond the radius aren't drawn.
+	 */
+	private void prepareReprojectionRegion(boolean far) {
+		if (!historyValid) {
+			return;
+		}
+
+		if (reprojectedFrames == 0) {
+			if (far) {
+				if (!nearCaptured) {
+					history.copyFrom(raster);
+					nearCaptured = true;
+				}
+			} else if (nearCaptured) {
+				historyValid = false;
+			}
+		} else {
+			skipRegionDraws = far;
+		}
+	}
+
+	/** True if the region won't be drawn because it is beyond the radius in a reprojected frame. */
+	private boolean isReprojectedRegion(int squaredChunkDistance) {
+		return reprojection && historyValid && reprojectedFrames != 0 && squaredChunkDistance > REPROJECTION_CHUNK_RADIUS * REPROJECTION_CHUNK_RADIUS;
+	}
+
+	/** Seeds the raster with history moved to the new view. Returns false if the scene must be redrawn instead. */
+	private boolean reprojectScene() {
+		if (!historyValid || raster.depthEnabled || reprojectedFrames >= REPROJECTION_FRAME_LIMIT || !computeReprojection()) {
+			return false;
+		}
+
+		if (reprojectedFrames != 0) {
+			raster.reproject(history, null, reprojectionDx, reprojectionDy, reprojectionErosion);
+		} else if (nearCaptured) {
+			raster.reproject(raster, history, reprojectionDx, reprojectionDy, reprojectionErosion);
+		} else {
+			// no region beyond the radius was drawn
+			raster.clear();
+		}
+
+		history.copyFrom(raster);
+		historyMatrix.copyFrom(baseMvpMatrix);
+		historyX = viewX;
+		historyY = viewY;
+		historyZ = viewZ;
+		++reprojectedFrames;
+		return true;
+	}
+
+	/** True if nothing drawn for the scene moves on screen by more than {@link #viewTolerance(int)} in the current view. */
+	private boolean isViewChangeTolerable() {
+		if (hasNearOccluders && (viewX != sceneX || viewY != sceneY || viewZ != sceneZ)) {
+			return false;
+		}
+
+		if (!measureViewChange(sceneMatrix, sceneX, sceneY, sceneZ, VIEW_TOLERANCE_MIN_DEPTH)) {
+			return false;
+		}
+
+		final float limit = (float) viewTolerance / PRECISE_PIXEL_SIZE;
+		return Math.max(Math.max(-viewChangeMinX, viewChangeMaxX), Math.max(-viewChangeMinY, viewChangeMaxY)) <= limit;
+	}
+
+	/**
+	 * Finds the pixel shift that best moves history to the current view, and the erosion needed to
+	 * cover the error of that shift. The shift is the middle of the range of movement and erosion is
+	 * the largest distance from it, plus one pixel for rounding and for curvature between sampled points.
+	 * Returns false when the view can't be reprojected or erosion would be too large.
+	 */
+	private boolean computeReprojection() {
+		if (!measureViewChange(historyMatrix, historyX, historyY, historyZ, REPROJECTION_MIN_DEPTH)) {
+			return false;
+		}
+
+		final float minX = viewChangeMinX, maxX = viewChangeMaxX, minY = viewChangeMinY, maxY = viewChangeMaxY;
+		final int dx = Math.round((minX + maxX) * 0.5f);
+		final int dy = Math.round((minY + maxY) * 0.5f);
+		final float error = Math.max(Math.max(maxX - dx, dx - minX), Math.max(maxY - dy, dy - minY));
+		final int erosion = (int) Math.ceil(error) + 1;
+
+		if (erosion > Math.max(REPROJECTION_MAX_EROSION, raster.pixelWidth >> 8)) {
+			return false;
+		}
+
+		reprojectionDx = dx;
+		reprojectionDy = dy;
+		reprojectionErosion = erosion;
+		return true;
+	}
+
+	/**
+	 * Finds how far, in pixels, points seen from an earlier view move on screen in the current view.
+	 * Projects points at the center, edges and corners of the earlier view, both at the given depth
+	 * and very far away, with both views and keeps the range of movement on each axis. Points
+	 * between the two depths move less than one of them. Returns false for orthographic projection
+	 * and when a point falls behind the camera.
+	 */
+	private boolean measureViewChange(Matrix4L from, long fromX, long fromY, long fromZ, float minDepth) {
+		final Matrix4L to = baseMvpMatrix;
+
+		// for perspective, the w row is the view direction
+		final float fx = from.a30f();
+		final float fy = from.a31f();
+		final float fz = from.a32f();
+		final float fLengthSquared = fx * fx + fy * fy + fz * fz;
+
+		if (fLengthSquared < 1e-6f) {
+			return false;
+		}
+
+		// rows that give clip x and y, scaled so that each sample lands on its intended normalized position
+		final float xScale = fLengthSquared / (from.a00f() * from.a00f() + from.a01f() * from.a01f() + from.a02f() * from.a02f());
+		final float yScale = fLengthSquared / (from.a10f() * from.a10f() + from.a11f() * from.a11f() + from.a12f() * from.a12f());
+		final float moveX = (float) (viewX - fromX) / CAMERA_PRECISION_UNITY;
+		final float moveY = (float) (viewY - fromY) / CAMERA_PRECISION_UNITY;
+		final float moveZ = (float) (viewZ - fromZ) / CAMERA_PRECISION_UNITY;
+		final float halfWidth = raster.pixelWidth * 0.5f;
+		final float halfHeight = raster.pixelHeight * 0.5f;
+		final float fLength = (float) Math.sqrt(fLengthSquared);
+
+		float minX = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, minY = Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+
+		for (int d = 0; d < 2; ++d) {
+			final float depth = (d == 0 ? minDepth : 0x10000) / fLength;
+
+			for (int sy = -1; sy <= 1; ++sy) {
+				for (int sx = -1; sx <= 1; ++sx) {
+					final float px = depth * (fx + sx * xScale * from.a00f() + sy * yScale * from.a10f());
+					final float py = depth * (fy + sx * xScale * from.a01f() + sy * yScale * from.a11f());
+					final float pz = depth * (fz + sx * xScale * from.a02f() + sy * yScale * from.a12f());
+
+					final float fromW = from.a30f() * px + from.a31f() * py + from.a32f() * pz + from.a33f();
+					final float qx = px - moveX;
+					final float qy = py - moveY;
+					final float qz = pz - moveZ;
+					final float toW = to.a30f() * qx + to.a31f() * qy + to.a32f() * qz + to.a33f();
+
+					if (fromW <= 0 || toW <= 0) {
+						return false;
+					}
+
+					final float shiftX = ((to.a00f() * qx + to.a01f() * qy + to.a02f() * qz + to.a03f()) / toW
+							- (from.a00f() * px + from.a01f() * py + from.a02f() * pz + from.a03f()) / fromW) * halfWidth;
+					final float shiftY = ((to.a10f() * qx + to.a11f() * qy + to.a12f() * qz + to.a13f()) / toW
+							- (from.a10f() * px + from.a11f() * py + from.a12f() * pz + from.a13f()) / fromW) * halfHeight;
+
+					minX = Math.min(minX, shiftX);
+					maxX = Math.max(maxX, shiftX);
+					minY = Math.min(minY, shiftY);
+					maxY = Math.max(maxY, shiftY);
+				}
+			}
+		}
+
+		viewChangeMinX = minX;
+		viewChangeMaxX = maxX;
+		viewChangeMinY = minY;
+		viewChangeMaxY = maxY;
+		return true;
+	}
+
 	/**
 	 * True if occlusion includes geometry within the near region.
 	 * When true, simple movement distance test isn't sufficient for knowing if redraw is needed.
@@ -1067,14 +1927,84 @@ public abstract class BoxOccluder {
 		//timer.stop(size < 100000);
 
 		//return result;
+		if (boundsPretest && outcome != 0 && isBoxBoundsOccluded(x0, y0, z0, x1, y1, z1)) {
+			return false;
+		}
+
 		return partiallyClearTests[outcome].apply(x0, y0, z0, x1, y1, z1);
 	}
 
+	/**
+	 * True if all tiles within the screen rectangle that bounds the corners of the box are occluded.
+	 * The silhouette of the box is inside that rectangle, so the box is then hidden. False if any corner
+	 * is clipped by the near plane.
+	 */
+	private boolean isBoxBoundsOccluded(int x0, int y0, int z0, int x1, int y1, int z1) {
+		final AbstractRasterizer raster = this.raster;
+		raster.setupVertex(V000, x0, y0, z0);
+		raster.setupVertex(V001, x0, y0, z1);
+		raster.setupVertex(V010, x0, y1, z0);
+		raster.setupVertex(V011, x0, y1, z1);
+		raster.setupVertex(V100, x1, y0, z0);
+		raster.setupVertex(V101, x1, y0, z1);
+		raster.setupVertex(V110, x1, y1, z0);
+		raster.setupVertex(V111, x1, y1, z1);
+
+		final int[] data = raster.vertexData;
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		float nearDepth = Float.POSITIVE_INFINITY;
+
+		for (int v = V000; v <= V111; v += PROJECTED_VERTEX_STRIDE) {
+			if (raster.needsNearClip(v) != 0) {
+				return false;
+			}
+
+			final int px = data[v + PV_PX];
+			final int py = data[v + PV_PY];
+			minX = Math.min(minX, px);
+			minY = Math.min(minY, py);
+			maxX = Math.max(maxX, px);
+			maxY = Math.max(maxY, py);
+			nearDepth = Math.min(nearDepth, Float.intBitsToFloat(data[v + PV_Z]) / Float.intBitsToFloat(data[v + PV_W]));
+		}
+
+		return raster.isRectOccluded(minX, minY, maxX, maxY, nearDepth);
+	}
+
+	/**
+	 * Tests the full box of a region that has no occluders. Only sets the region origin, without
+	 * the bookkeeping {@link #prepareRegion} does for drawing, so it can be called in any order
+	 * without stopping {@link #reprojection(boolean)}. Call {@link #prepareRegion} again before drawing.
+	 */
 	public final boolean isEmptyRegionVisible(int originX, int originY, int originZ, int fuzz) {
-		prepareRegion(originX, originY, originZ, 0, 0);
+		setRegionOrigin(originX, originY, originZ);
 		return isBoxVisible(PackedBox.FULL_BOX, fuzz);
 	}
 
+	/**
+	 * For arbitrary occludee meshes. Coordinates are region-relative, same as boxes.
+	 * Unlike boxes, this relies on winding order: vertices must be in the same order as
+	 * box faces seen from the camera.  Back-facing triangles are never visible.
+	 */
+	public final boolean isTriangleVisible(int x0, int y0, int z0, int x1, int y1, int z1, int x2, int y2, int z2) {
+		raster.setupVertex(V000, x0, y0, z0);
+		raster.setupVertex(V001, x1, y1, z1);
+		raster.setupVertex(V010, x2, y2, z2);
+		return raster.isTrianglePartiallyClear(V000, V001, V010);
+	}
+
+	/**
+	 * For occluder meshes that aren't boxes, without splitting them into degenerate quads.
+	 * Coordinates are region-relative, same as boxes. Relies on winding order - see
+	 * {@link #isTriangleVisible(int, int, int, int, int, int, int, int, int)}.
+	 */
+	public final void occludeTriangle(int x0, int y0, int z0, int x1, int y1, int z1, int x2, int y2, int z2) {
+		raster.setupVertex(V000, x0, y0, z0);
+		raster.setupVertex(V001, x1, y1, z1);
+		raster.setupVertex(V010, x2, y2, z2);
+		raster.drawTriangle(V000, V001, V010);
+	}
+
 	/**
 	 * Does not rely on winding order but instead the distance from
 	 * plane with known facing to camera position.
@@ -1158,16 +2088,119 @@ public abstract class BoxOccluder {
 			}
 		}
 
+		if (skipRegionDraws || (occluderAreaThreshold > 0 && occluderImportance(packedBox) < occluderAreaThreshold)) {
+			return;
+		}
+
 		//timer.start();
 		boxDraws[outcome].apply(x0, y0, z0, x1, y1, z1);
 		//timer.stop(false);
 	}
 
+	/**
+	 * Tests a box without fuzz and, if it is visible, draws it as an occluder.
+	 * Same result as {@link #isBoxVisible(int, int)} with zero fuzz followed by
+	 * {@link #occludeBox(int)} when visible, but implementations can override to
+	 * set up vertices and walk tiles only once.  Returns true if the box was visible.
+	 */
+	public boolean testAndOccludeBox(int packedBox) {
+		if (isBoxVisible(packedBox, 0)) {
+			occludeBox(packedBox);
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Fused version of {@link #isBoxVisibleFromPerspective(int, int)} and
+	 * {@link #occludeFromPerspective(int)} for {@link #testAndOccludeBox(int)}.
+	 * Near boxes are only tested when near occluders aren't drawn.
+	 */
+	protected final boolean testAndOccludeFromPerspective(int packedBox) {
+		final int x0 = PackedBox.x0(packedBox);
+		final int y0 = PackedBox.y0(packedBox);
+		final int z0 = PackedBox.z0(packedBox);
+		final int x1 = PackedBox.x1(packedBox);
+		final int y1 = PackedBox.y1(packedBox);
+		final int z1 = PackedBox.z1(packedBox);
+
+		final int offsetX = this.offsetX;
+		final int offsetY = this.offsetY;
+		final int offsetZ = this.offsetZ;
+
+		int outcome = 0;
+
+		boolean hasNear = true;
+
+		final int top = (y1 << CAMERA_PRECISION_BITS) + offsetY;
+
+		// NB: entirely possible for neither top or bottom to be visible.
+		// This happens when camera is between them.
+
+		if (top < 0) {
+			// camera above top face
+			outcome |= UP;
+			hasNear &= top > -NEAR_RANGE;
+		} else {
+			final int bottom = (y0 << CAMERA_PRECISION_BITS) + offsetY;
+
+			if (bottom > 0) {
+				// camera below bottom face
+				outcome |= DOWN;
+				hasNear &= bottom < NEAR_RANGE;
+			}
+		}
+
+		final int east = (x1 << CAMERA_PRECISION_BITS) + offsetX;
+
+		if (east < 0) {
+			outcome |= EAST;
+			hasNear &= east > -NEAR_RANGE;
+		} else {
+			final int west = (x0 << CAMERA_PRECISION_BITS) + offsetX;
+
+			if (west > 0) {
+				outcome |= WEST;
+				hasNear &= west < NEAR_RANGE;
+			}
+		}
+
+		final int south = (z1 << CAMERA_PRECISION_BITS) + offsetZ;
+
+		if (south < 0) {
+			outcome |= SOUTH;
+			hasNear &= south > -NEAR_RANGE;
+		} else {
+			final int north = (z0 << CAMERA_PRECISION_BITS) + offsetZ;
+
+			if (north > 0) {
+				outcome |= NORTH;
+				hasNear &= north < NEAR_RANGE;
+			}
+		}
+
+		if (hasNear) {
+			if (drawNearOccluders) {
+				hasNearOccluders |= hasNear;
+			} else {
+				return partiallyClearTests[outcome].apply(x0, y0, z0, x1, y1, z1);
+			}
+		}
+
+		if (skipRegionDraws || (occluderAreaThreshold > 0 && occluderImportance(packedBox) < occluderAreaThreshold)) {
+			return partiallyClearTests[outcome].apply(x0, y0, z0, x1, y1, z1);
+		}
+
+		return boxTestAndDraws[outcome].apply(x0, y0, z0, x1, y1, z1);
+	}
+
 	public final void occlude(int[] visData) {
 		final int occlusionRange = this.occlusionRange;
-		final int limit = visData.length;
 
-		if (limit > 1) {
+		if (visData.length > 1 && !skipRegionDraws && (raster.depthEnabled || raster.saturation() < saturationLimit)) {
+			visData = regionOccluders(visData, occlusionRange);
+			final int limit = visData.length;
 			boolean updateDist = false;
 
 			for (int i = 1; i < limit; i++) {
@@ -1187,6 +2220,61 @@ public abstract class BoxOccluder {
 		}
 	}
 
+	/** Boxes to draw for a region: merged boxes when {@link #farOccluderLod(boolean)} applies, otherwise the input. */
+	private int[] regionOccluders(int[] visData, int occlusionRange) {
+		if (farOccluderLod && occlusionRange >= PackedBox.RANGE_FAR) {
+			return farOccluders.computeIfAbsent(visData, OccluderLod::mergeBoxes);
+		} else {
+			return visData;
+		}
+	}
+
+	/**
+	 * Estimated value of a box as an occluder in the current region: the pixel area of the screen
+	 * rectangle that bounds its corners, clipped to the screen, divided by one plus its nearest depth
+	 * over {@link #IMPORTANCE_DEPTH_SCALE} blocks, because more can hide behind near occluders.
+	 * Boxes entirely behind the camera have none, and boxes that reach behind it count as covering the whole screen.
+	 */
+	public final float occluderImportance(int packedBox) {
+		final Matrix4L mvpMatrix = raster.mvpMatrix;
+		float minX = 1, maxX = -1, minY = 1, maxY = -1, minW = Float.MAX_VALUE;
+		int behindCount = 0;
+
+		for (int corner = 0; corner < 8; ++corner) {
+			final int x = (corner & 1) == 0 ? PackedBox.x0(packedBox) : PackedBox.x1(packedBox);
+			final int y = (corner & 2) == 0 ? PackedBox.y0(packedBox) : PackedBox.y1(packedBox);
+			final int z = (corner & 4) == 0 ? PackedBox.z0(packedBox) : PackedBox.z1(packedBox);
+			final float w = mvpMatrix.transformVec4W(x, y, z) * Matrix4L.FLOAT_CONVERSION;
+
+			if (w <= 0) {
+				++behindCount;
+				continue;
+			}
+
+			final float iw = 1f / w;
+			final float tx = mvpMatrix.transformVec4X(x, y, z) * Matrix4L.FLOAT_CONVERSION * iw;
+			final float ty = mvpMatrix.transformVec4Y(x, y, z) * Matrix4L.FLOAT_CONVERSION * iw;
+
+			minX = Math.min(minX, tx);
+			maxX = Math.max(maxX, tx);
+			minY = Math.min(minY, ty);
+			maxY = Math.max(maxY, ty);
+			minW = Math.min(minW, w);
+		}
+
+		if (behindCount == 8) {
+			return 0;
+		} else if (behindCount != 0) {
+			return raster.pixelWidth * raster.pixelHeight;
+		}
+
+		// boxes entirely off one side of the screen have no area
+		final float width = Math.max(0, Math.min(maxX, 1) - Math.max(minX, -1));
+		final float height = Math.max(0, Math.min(maxY, 1) - Math.max(minY, -1));
+		final float area = width * height * 0.25f * raster.pixelWidth * raster.pixelHeight;
+		return area / (1 + minW / IMPORTANCE_DEPTH_SCALE);
+	}
+
 	@FunctionalInterface
 	protected interface BoxTest {
 		boolean apply(int x0, int y0, int z0, int x1, int y1, int z1);
@@ -34,6 +34,7 @@ public class Constants {
 	static final int PRECISE_PIXEL_SIZE = 1 << PRECISION_BITS;
 	static final int PRECISE_PIXEL_CENTER = PRECISE_PIXEL_SIZE / 2;
 	static final int SCANT_PRECISE_PIXEL_CENTER = PRECISE_PIXEL_CENTER - 1;
+	/** Default and maximum raster dimensions. Rasterizers can be constructed smaller. */
 	static final int TILE_WIDTH_BITS = 8;
 	static final int TILE_WIDTH = 1 << TILE_WIDTH_BITS;
 	static final int TILE_WIDTH_MASK = TILE_WIDTH - 1;
@@ -69,13 +70,23 @@ public class Constants {
 	static final int CLIP_RANGE = PRECISE_WIDTH + GUARD_SIZE * 2;
 	static final int CLIP_MASK = ~(CLIP_RANGE - 1);
 	static final int TILE_COUNT = TILE_WIDTH * TILE_HEIGHT;
-	static final long[] EMPTY_BITS = new long[TILE_COUNT];
+
+	/** Blocks are 8x8 tiles (64x64 pixels) and super blocks are 8x8 blocks (512x512 pixels). */
+	static final int BLOCK_AXIS_SHIFT = 3;
+
+	/**
+	 * Smallest raster size accepted by rasterizer constructors. Largest (and default)
+	 * is {@link #PIXEL_WIDTH} because edge math would overflow at higher precise sizes.
+	 */
+	public static final int MIN_PIXEL_SIZE = 256;
 	public static final int CAMERA_PRECISION_BITS = 12;
 	static final int CAMERA_PRECISION_UNITY = 1 << CAMERA_PRECISION_BITS;
 	static final int CAMERA_PRECISION_CHUNK_MAX = 18 * CAMERA_PRECISION_UNITY;
 	static final int CAMERA_PRECISION_HALF = CAMERA_PRECISION_UNITY / 2;
 	static final int BOUNDS_IN = 0;
 	static final int BOUNDS_OUTSIDE_OR_TOO_SMALL = 1;
+	/** Polygon made concave by subpixel rounding, which event merging can't fill. */
+	static final int BOUNDS_CONCAVE = 2;
 	static final int B_NEGATIVE = 8;
 	static final int B_ZERO = 16;
 	static final int B_POSITIVE = 32;
@@ -252,7 +263,14 @@ public class Constants {
 	static final int IDX_DX1 = IDX_DY0 + 1;
 	static final int IDX_DY1 = IDX_DX1 + 1;
 
-	static final int VERTEX_DATA_LENGTH = IDX_DY1 + 1;
+	/** Convex polygons can have this many input vertices. Clipping to the near plane can add one more. */
+	static final int POLYGON_VERTEX_LIMIT = 6;
+	static final int POLYGON_EDGE_LIMIT = POLYGON_VERTEX_LIMIT + 1;
+	/** Polygon edges are stored after quad edges, with the same x0, y0, x1, y1 layout. */
+	static final int POLYGON_EDGE_STRIDE = 4;
+	static final int IDX_POLYGON_EDGES = IDX_DY1 + 1;
+
+	static final int VERTEX_DATA_LENGTH = IDX_POLYGON_EDGES + POLYGON_EDGE_LIMIT * POLYGON_EDGE_STRIDE;
 
 	static final int EVENT_DATA_LENGTH = PIXEL_HEIGHT * 2;
 }
@@ -0,0 +1,166 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.bitraster;
+
+import static grondag.bitraster.Constants.BLOCK_AXIS_SHIFT;
+import static grondag.bitraster.Constants.TILE_AXIS_SHIFT;
+
+import java.util.Arrays;
+
+/**
+ * Occluder shapes that have been prepared but not yet drawn to tiles.  Keeps the bounds,
+ * far depth and event rows of each shape so that the tile walk can happen later, on any thread.
+ *
+ * <p>Shapes are also sorted into a bin for each 8x8 block of tiles they overlap, so they can be
+ * drawn one block at a time and tests only need to wait for blocks they overlap.
+ */
+final class DrawBatch {
+	static final int SHAPE_MIN_X = 0;
+	static final int SHAPE_MIN_Y = 1;
+	static final int SHAPE_MAX_X = 2;
+	static final int SHAPE_MAX_Y = 3;
+	/** Added to (row << 1) to find the events of a row in {@link #events}. */
+	static final int SHAPE_EVENT_OFFSET = 4;
+	static final int SHAPE_FAR_DEPTH = 5;
+	static final int SHAPE_STRIDE = 6;
+
+	private static final int SHAPE_LIMIT = 4096;
+
+	/** Enough for 64 full-height shapes at the largest raster size. */
+	private static final int EVENT_LIMIT = 0x40000;
+
+	/** Enough for every shape to overlap 16 blocks, or one shape to cover the largest raster. */
+	private static final int ENTRY_LIMIT = SHAPE_LIMIT * 16;
+
+	/** Shifts pixel coordinates to block coordinates. */
+	private static final int BLOCK_PIXEL_SHIFT = TILE_AXIS_SHIFT + BLOCK_AXIS_SHIFT;
+
+	final int[] shapes = new int[SHAPE_LIMIT * SHAPE_STRIDE];
+	final int[] events = new int[EVENT_LIMIT];
+	int shapeCount;
+	private int eventCount;
+
+	/**
+	 * First and last bin entry of each block, or -1 when empty. Entries of a bin
+	 * are linked through {@link #entryNext} in the order shapes were added.
+	 */
+	final int[] binHeads;
+	private final int[] binTails;
+	final int[] entryShapes = new int[ENTRY_LIMIT];
+	final int[] entryNext = new int[ENTRY_LIMIT];
+	private int entryCount;
+
+	/** One bit per block with a non-empty bin, in the same layout as {@link AbstractRasterizer#setBlocks}. */
+	final long[] pendingBlocks;
+	private final int blockWidthBits, superBlockWidthBits;
+
+	DrawBatch(AbstractRasterizer raster) {
+		binHeads = new int[raster.blockCount];
+		binTails = new int[raster.blockCount];
+		pendingBlocks = new long[raster.superBlockCount];
+		blockWidthBits = raster.blockWidthBits;
+		superBlockWidthBits = raster.superBlockWidthBits;
+		Arrays.fill(binHeads, -1);
+	}
+
+	/**
+	 * Copies the shape most recently prepared by the raster and adds it to the bins of blocks it overlaps.
+	 * Returns false without copying anything when the batch has no room.
+	 */
+	boolean add(AbstractRasterizer raster) {
+		final int eventStart = raster.eventY0 << 1;
+		final int eventLength = raster.eventLimit + 2 - eventStart;
+		final int minBlockX = raster.minPixelX >> BLOCK_PIXEL_SHIFT;
+		final int minBlockY = raster.minPixelY >> BLOCK_PIXEL_SHIFT;
+		final int maxBlockX = raster.maxPixelX >> BLOCK_PIXEL_SHIFT;
+		final int maxBlockY = raster.maxPixelY >> BLOCK_PIXEL_SHIFT;
+		final int entryLength = (maxBlockX - minBlockX + 1) * (maxBlockY - minBlockY + 1);
+
+		if (shapeCount == SHAPE_LIMIT || eventCount + eventLength > EVENT_LIMIT || entryCount + entryLength > ENTRY_LIMIT) {
+			return false;
+		}
+
+		for (int blockY = minBlockY; blockY <= maxBlockY; ++blockY) {
+			for (int blockX = minBlockX; blockX <= maxBlockX; ++blockX) {
+				final int blockIndex = blockX | (blockY << blockWidthBits);
+				final int entry = entryCount++;
+				entryShapes[entry] = shapeCount;
+				entryNext[entry] = -1;
+
+				if (binHeads[blockIndex] == -1) {
+					binHeads[blockIndex] = entry;
+					pendingBlocks[superIndex(blockX, blockY)] |= Indexer.pixelMask(blockX, blockY);
+				} else {
+					entryNext[binTails[blockIndex]] = entry;
+				}
+
+				binTails[blockIndex] = entry;
+			}
+		}
+
+		final int base = shapeCount * SHAPE_STRIDE;
+		final int[] shapes = this.shapes;
+		shapes[base + SHAPE_MIN_X] = raster.minPixelX;
+		shapes[base + SHAPE_MIN_Y] = raster.minPixelY;
+		shapes[base + SHAPE_MAX_X] = raster.maxPixelX;
+		shapes[base + SHAPE_MAX_Y] = raster.maxPixelY;
+		shapes[base + SHAPE_EVENT_OFFSET] = eventCount - eventStart;
+		shapes[base + SHAPE_FAR_DEPTH] = Float.floatToRawIntBits(raster.farDepth);
+
+		System.arraycopy(raster.eventData, eventStart, events, eventCount, eventLength);
+		eventCount += eventLength;
+		++shapeCount;
+		return true;
+	}
+
+	/** True if any shape is binned in a block that overlaps the given pixel bounds. */
+	boolean overlaps(int minPixelX, int minPixelY, int maxPixelX, int maxPixelY) {
+		final int minBlockX = minPixelX >> BLOCK_PIXEL_SHIFT;
+		final int minBlockY = minPixelY >> BLOCK_PIXEL_SHIFT;
+		final int maxBlockX = maxPixelX >> BLOCK_PIXEL_SHIFT;
+		final int maxBlockY = maxPixelY >> BLOCK_PIXEL_SHIFT;
+
+		for (int superY = minBlockY >> BLOCK_AXIS_SHIFT; superY <= maxBlockY >> BLOCK_AXIS_SHIFT; ++superY) {
+			final int superBaseY = superY << BLOCK_AXIS_SHIFT;
+
+			for (int superX = minBlockX >> BLOCK_AXIS_SHIFT; superX <= maxBlockX >> BLOCK_AXIS_SHIFT; ++superX) {
+				final int superBaseX = superX << BLOCK_AXIS_SHIFT;
+				final long blocks = Indexer.rectMask(minBlockX - superBaseX, minBlockY - superBaseY, maxBlockX - superBaseX, maxBlockY - superBaseY);
+
+				if ((blocks & pendingBlocks[superX | (superY << superBlockWidthBits)]) != 0) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private int superIndex(int blockX, int blockY) {
+		return (blockX >> BLOCK_AXIS_SHIFT) | ((blockY >> BLOCK_AXIS_SHIFT) << superBlockWidthBits);
+	}
+
+	void clear() {
+		if (shapeCount != 0) {
+			shapeCount = 0;
+			eventCount = 0;
+			entryCount = 0;
+			Arrays.fill(binHeads, -1);
+			Arrays.fill(pendingBlocks, 0);
+		}
+	}
+}
@@ -16,11 +16,19 @@
 
 package grondag.bitraster;
 
+import static grondag.bitraster.Constants.BLOCK_AXIS_SHIFT;
 import static grondag.bitraster.Constants.TILE_AXIS_SHIFT;
 import static grondag.bitraster.Constants.TILE_PIXEL_INDEX_MASK;
-import static grondag.bitraster.Constants.TILE_WIDTH_BITS;
 
 abstract class Indexer {
+	/**
+	 * When true, tiles are stored block by block, with the 64 tiles of each 8x8 block in Morton (Z) order.
+	 * Tiles near each other on screen are then near each other in memory in both directions, so tall, narrow
+	 * quads touch fewer cache lines.  Otherwise tiles are stored row by row.  Fixed for the life of the JVM
+	 * so the choice costs nothing in traversal code.  Launch with -Dbitraster.mortonTiles=true to enable.
+	 */
+	static final boolean MORTON_TILES = Boolean.getBoolean("bitraster.mortonTiles");
+
 	private Indexer() {
 	}
 
@@ -31,12 +39,33 @@ abstract class Indexer {
 		return z | ((x & 0b100) << 2) | ((y & 0b100) << 3);
 	}
 
-	private static int tileIndex(int tileX, int tileY) {
-		return tileX | (tileY << TILE_WIDTH_BITS);
+	/** Inverse of {@link #mortonNumber(int, int)} for x. Only handles 0-63 values. */
+	static int mortonX(int z) {
+		return (z & 0b000001) | ((z & 0b000100) >> 1) | ((z & 0b010000) >> 2);
+	}
+
+	/** Inverse of {@link #mortonNumber(int, int)} for y. Only handles 0-63 values. */
+	static int mortonY(int z) {
+		return mortonX(z >> 1);
+	}
+
+	/** Tile index in the layout selected by {@link #MORTON_TILES}. */
+	static int tileIndex(int tileX, int tileY, int tileWidthBits) {
+		return MORTON_TILES ? mortonTileIndex(tileX, tileY, tileWidthBits) : rowTileIndex(tileX, tileY, tileWidthBits);
+	}
+
+	static int rowTileIndex(int tileX, int tileY, int tileWidthBits) {
+		return tileX | (tileY << tileWidthBits);
+	}
+
+	/** Blocks are row by row, and tiles within each block are in Morton order. */
+	static int mortonTileIndex(int tileX, int tileY, int tileWidthBits) {
+		final int blockIndex = (tileX >> BLOCK_AXIS_SHIFT) | ((tileY >> BLOCK_AXIS_SHIFT) << (tileWidthBits - BLOCK_AXIS_SHIFT));
+		return (blockIndex << 6) | mortonNumber(tileX & 7, tileY & 7);
 	}
 
-	static int tileIndexFromPixelXY(int x, int y) {
-		return tileIndex(x >>> TILE_AXIS_SHIFT, y >>> TILE_AXIS_SHIFT);
+	static int tileIndexFromPixelXY(int x, int y, int tileWidthBits) {
+		return tileIndex(x >>> TILE_AXIS_SHIFT, y >>> TILE_AXIS_SHIFT, tileWidthBits);
 	}
 
 	static int pixelIndex(int x, int y) {
@@ -61,4 +90,19 @@ abstract class Indexer {
 	static long setPixelInWordPreMasked(long word, int x, int y) {
 		return word | (1L << ((y << TILE_AXIS_SHIFT) | x));
 	}
+
+	/**
+	 * Mask of all bits within the given inclusive rectangle of an 8x8 word.
+	 * Inputs are clamped to 0-7 and so can be relative to any origin.
+	 */
+	static long rectMask(int x0, int y0, int x1, int y1) {
+		x0 = x0 < 0 ? 0 : x0;
+		y0 = y0 < 0 ? 0 : y0;
+		x1 = x1 > 7 ? 7 : x1;
+		y1 = y1 > 7 ? 7 : y1;
+
+		// row mask has no carries when multiplied out to all rows
+		final long row = (0xFFL << x0) & (0xFFL >>> (7 - x1));
+		return (row * 0x0101010101010101L) & (-1L << (y0 << 3)) & (-1L >>> ((7 - y1) << 3));
+	}
 }
@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.bitraster;
+
+import java.util.Arrays;
+
+/**
+ * Coarse occluders for distant regions. Replaces the boxes of a region with a few large boxes
+ * that are entirely inside the space the original boxes fill, so they never occlude more than
+ * the originals did, but are drawn as a handful of quads.
+ */
+public abstract class OccluderLod {
+	/** Most merged boxes made for one region, unless it has fewer boxes to begin with. */
+	private static final int MAX_BOXES = 4;
+
+	/** Merged boxes with fewer blocks than this are left out. Too small to matter at a distance. */
+	private static final int MIN_VOLUME = 8;
+
+	private OccluderLod() {
+	}
+
+	/**
+	 * Returns vis data in the same form as the input, with the same first element, holding the
+	 * largest boxes that fit inside the union of the input boxes, largest first. All have
+	 * {@link PackedBox#RANGE_EXTREME} range so they are drawn at any range. Boxes don't overlap.
+	 * Input with no boxes is returned as is.
+	 */
+	public static int[] mergeBoxes(int[] visData) {
+		final int limit = visData.length;
+
+		if (limit <= 1) {
+			return visData;
+		}
+
+		// bit x of rows[(y << 4) | z] is set when that block is inside a box
+		final int[] rows = new int[256];
+
+		for (int i = 1; i < limit; ++i) {
+			final int box = visData[i];
+			final int mask = ((1 << PackedBox.x1(box)) - 1) & ~((1 << PackedBox.x0(box)) - 1);
+			final int z0 = PackedBox.z0(box);
+			final int y1 = PackedBox.y1(box);
+			final int z1 = PackedBox.z1(box);
+
+			for (int y = PackedBox.y0(box); y < y1; ++y) {
+				for (int z = z0; z < z1; ++z) {
+					rows[(y << 4) | z] |= mask;
+				}
+			}
+		}
+
+		// never more boxes than the input
+		final int maxCount = Math.min(MAX_BOXES, limit - 1) + 1;
+		final int[] result = new int[maxCount];
+		result[0] = visData[0];
+		int count = 1;
+
+		while (count < maxCount) {
+			final int box = largestBox(rows);
+
+			if (box == PackedBox.EMPTY_BOX) {
+				break;
+			}
+
+			result[count++] = box;
+
+			final int mask = ((1 << PackedBox.x1(box)) - 1) & ~((1 << PackedBox.x0(box)) - 1);
+
+			for (int y = PackedBox.y0(box); y < PackedBox.y1(box); ++y) {
+				for (int z = PackedBox.z0(box); z < PackedBox.z1(box); ++z) {
+					rows[(y << 4) | z] &= ~mask;
+				}
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Grows a box from each block that has no filled neighbor on the low side of any axis:
+	 * first along x to the end of the run, then along z and y while every row is filled.
+	 * Returns the largest, or {@link PackedBox#EMPTY_BOX} if none has {@link #MIN_VOLUME}.
+	 */
+	private static int largestBox(int[] rows) {
+		int bestBox = PackedBox.EMPTY_BOX;
+		int bestVolume = MIN_VOLUME - 1;
+
+		for (int y = 0; y < 16; ++y) {
+			for (int z = 0; z < 16; ++z) {
+				final int row = rows[(y << 4) | z];
+				final int below = y == 0 ? 0 : rows[((y - 1) << 4) | z];
+				final int behind = z == 0 ? 0 : rows[(y << 4) | (z - 1)];
+				int corners = row & ~(row << 1) & ~below & ~behind;
+
+				while (corners != 0) {
+					final int x0 = Integer.numberOfTrailingZeros(corners);
+					corners &= corners - 1;
+
+					// run of filled blocks starting at x0
+					final int x1 = Integer.numberOfTrailingZeros(~(row >>> x0)) + x0;
+					final int mask = ((1 << x1) - 1) & ~((1 << x0) - 1);
+
+					int z1 = z + 1;
+
+					while (z1 < 16 && (rows[(y << 4) | z1] & mask) == mask) {
+						++z1;
+					}
+
+					int y1 = y + 1;
+
+					while (y1 < 16 && isFilled(rows, y1, z, z1, mask)) {
+						++y1;
+					}
+
+					final int volume = (x1 - x0) * (z1 - z) * (y1 - y);
+
+					if (volume > bestVolume) {
+						bestVolume = volume;
+						bestBox = PackedBox.pack(x0, y, z, x1, y1, z1, PackedBox.RANGE_EXTREME);
+					}
+				}
+			}
+		}
+
+		return bestBox;
+	}
+
+	private static boolean isFilled(int[] rows, int y, int z0, int z1, int mask) {
+		for (int z = z0; z < z1; ++z) {
+			if ((rows[(y << 4) | z] & mask) != mask) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
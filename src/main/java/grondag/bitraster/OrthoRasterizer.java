@@ -16,19 +16,62 @@
 
 package grondag.bitraster;
 
-import static grondag.bitraster.Constants.HALF_PRECISE_HEIGHT;
-import static grondag.bitraster.Constants.HALF_PRECISE_WIDTH;
+import static grondag.bitraster.Constants.PIXEL_WIDTH;
 import static grondag.bitraster.Constants.PV_PX;
 import static grondag.bitraster.Constants.PV_PY;
+import static grondag.bitraster.Constants.PV_W;
 import static grondag.bitraster.Constants.PV_X;
 import static grondag.bitraster.Constants.PV_Y;
+import static grondag.bitraster.Constants.PV_Z;
 
 public final class OrthoRasterizer extends AbstractRasterizer {
+	public OrthoRasterizer() {
+		this(PIXEL_WIDTH);
+	}
+
+	/**
+	 * @param pixelSize Width and height of the raster in pixels. Must be a power of two
+	 * from {@link Constants#MIN_PIXEL_SIZE} to {@link Constants#PIXEL_WIDTH}, inclusive.
+	 */
+	public OrthoRasterizer(int pixelSize) {
+		this(pixelSize, pixelSize);
+	}
+
+	/**
+	 * For viewports that aren't square. Height should match the aspect ratio of the projection.
+	 *
+	 * @param pixelWidth Width of the raster in pixels. Must be a power of two
+	 * from {@link Constants#MIN_PIXEL_SIZE} to {@link Constants#PIXEL_WIDTH}, inclusive.
+	 * @param pixelHeight Height of the raster in pixels. Must be a multiple of 8
+	 * no larger than {@link Constants#PIXEL_HEIGHT}.
+	 */
+	public OrthoRasterizer(int pixelWidth, int pixelHeight) {
+		super(pixelWidth, pixelHeight);
+	}
+
+	/**
+	 * Same as {@link #OrthoRasterizer(int, int)} but can keep tiles in a sparse form that uses much less
+	 * memory when most tiles are either empty or full, at some cost in speed.
+	 */
+	public OrthoRasterizer(int pixelWidth, int pixelHeight, boolean sparseTiles) {
+		super(pixelWidth, pixelHeight, sparseTiles);
+	}
+
 	@Override
 	int prepareBounds(int v0, int v1, int v2, int v3) {
 		return prepareBoundsNoClip(v0, v1, v2, v3);
 	}
 
+	@Override
+	int prepareTriangleBounds(int v0, int v1, int v2) {
+		return prepareTriangleBoundsNoClip(v0, v1, v2);
+	}
+
+	@Override
+	int preparePolygonBounds(int vertexCount) {
+		return preparePolygonBoundsNoClip(vertexCount);
+	}
+
 	@Override void setupVertex(final int baseIndex, final int x, final int y, final int z) {
 		final int[] data = vertexData;
 		final Matrix4L mvpMatrix = this.mvpMatrix;
@@ -38,11 +81,19 @@ public final class OrthoRasterizer extends AbstractRasterizer {
 
 		data[baseIndex + PV_X] = Float.floatToRawIntBits(tx);
 		data[baseIndex + PV_Y] = Float.floatToRawIntBits(ty);
+		data[baseIndex + PV_Z] = Float.floatToRawIntBits(mvpMatrix.transformVec4Z(x, y, z) * Matrix4L.FLOAT_CONVERSION);
+		data[baseIndex + PV_W] = Float.floatToRawIntBits(1f);
 
-		final int px = Math.round(tx * HALF_PRECISE_WIDTH) + HALF_PRECISE_WIDTH;
-		final int py = Math.round(ty * HALF_PRECISE_HEIGHT) + HALF_PRECISE_HEIGHT;
+		final int px = Math.round(tx * halfPreciseWidth) + halfPreciseWidth;
+		final int py = Math.round(ty * halfPreciseHeight) + halfPreciseHeight;
 
 		data[baseIndex + PV_PX] = px;
 		data[baseIndex + PV_PY] = py;
 	}
+
+	/** No near clipping in orthographic projection. */
+	@Override
+	int needsNearClip(final int baseIndex) {
+		return 0;
+	}
 }
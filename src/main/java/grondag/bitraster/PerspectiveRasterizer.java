@@ -19,8 +19,6 @@ package grondag.bitraster;
 import static grondag.bitraster.Constants.BOUNDS_IN;
 import static grondag.bitraster.Constants.BOUNDS_OUTSIDE_OR_TOO_SMALL;
 import static grondag.bitraster.Constants.EVENT_POSITION_MASK;
-import static grondag.bitraster.Constants.HALF_PRECISE_HEIGHT;
-import static grondag.bitraster.Constants.HALF_PRECISE_WIDTH;
 import static grondag.bitraster.Constants.IDX_AX0;
 import static grondag.bitraster.Constants.IDX_AX1;
 import static grondag.bitraster.Constants.IDX_AY0;
@@ -37,10 +35,7 @@ import static grondag.bitraster.Constants.IDX_DX0;
 import static grondag.bitraster.Constants.IDX_DX1;
 import static grondag.bitraster.Constants.IDX_DY0;
 import static grondag.bitraster.Constants.IDX_DY1;
-import static grondag.bitraster.Constants.PRECISE_HEIGHT;
-import static grondag.bitraster.Constants.PRECISE_HEIGHT_CLAMP;
-import static grondag.bitraster.Constants.PRECISE_WIDTH;
-import static grondag.bitraster.Constants.PRECISE_WIDTH_CLAMP;
+import static grondag.bitraster.Constants.PIXEL_WIDTH;
 import static grondag.bitraster.Constants.PRECISION_BITS;
 import static grondag.bitraster.Constants.PV_PX;
 import static grondag.bitraster.Constants.PV_PY;
@@ -54,6 +49,38 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 	/** Holds results of {@link #clipNear(int, int)}. */
 	private int clipX, clipY;
 
+	public PerspectiveRasterizer() {
+		this(PIXEL_WIDTH);
+	}
+
+	/**
+	 * @param pixelSize Width and height of the raster in pixels. Must be a power of two
+	 * from {@link Constants#MIN_PIXEL_SIZE} to {@link Constants#PIXEL_WIDTH}, inclusive.
+	 */
+	public PerspectiveRasterizer(int pixelSize) {
+		this(pixelSize, pixelSize);
+	}
+
+	/**
+	 * For viewports that aren't square. Height should match the aspect ratio of the projection.
+	 *
+	 * @param pixelWidth Width of the raster in pixels. Must be a power of two
+	 * from {@link Constants#MIN_PIXEL_SIZE} to {@link Constants#PIXEL_WIDTH}, inclusive.
+	 * @param pixelHeight Height of the raster in pixels. Must be a multiple of 8
+	 * no larger than {@link Constants#PIXEL_HEIGHT}.
+	 */
+	public PerspectiveRasterizer(int pixelWidth, int pixelHeight) {
+		super(pixelWidth, pixelHeight);
+	}
+
+	/**
+	 * Same as {@link #PerspectiveRasterizer(int, int)} but can keep tiles in a sparse form that uses much less
+	 * memory when most tiles are either empty or full, at some cost in speed.
+	 */
+	public PerspectiveRasterizer(int pixelWidth, int pixelHeight, boolean sparseTiles) {
+		super(pixelWidth, pixelHeight, sparseTiles);
+	}
+
 	@Override void setupVertex(final int baseIndex, final int x, final int y, final int z) {
 		final int[] data = vertexData;
 		final Matrix4L mvpMatrix = this.mvpMatrix;
@@ -69,8 +96,8 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 
 		if (w != 0) {
 			final float iw = 1f / w;
-			final int px = Math.round(tx * iw * HALF_PRECISE_WIDTH) + HALF_PRECISE_WIDTH;
-			final int py = Math.round(ty * iw * HALF_PRECISE_HEIGHT) + HALF_PRECISE_HEIGHT;
+			final int px = Math.round(tx * iw * halfPreciseWidth) + halfPreciseWidth;
+			final int py = Math.round(ty * iw * halfPreciseHeight) + halfPreciseHeight;
 
 			data[baseIndex + PV_PX] = px;
 			data[baseIndex + PV_PY] = py;
@@ -102,8 +129,8 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 		final float w = (intW + (extW - intW) * wt);
 		final float iw = 1f / w;
 
-		clipX = Math.round(iw * x * HALF_PRECISE_WIDTH) + HALF_PRECISE_WIDTH;
-		clipY = Math.round(iw * y * HALF_PRECISE_HEIGHT) + HALF_PRECISE_HEIGHT;
+		clipX = Math.round(iw * x * halfPreciseWidth) + halfPreciseWidth;
+		clipY = Math.round(iw * y * halfPreciseHeight) + halfPreciseHeight;
 	}
 
 	@Override
@@ -230,11 +257,11 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			maxY = dy0;
 		}
 
-		if (maxY <= 0 || minY >= PRECISE_HEIGHT) {
+		if (maxY <= 0 || minY >= preciseHeight) {
 			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
 		}
 
-		if (maxX <= 0 || minX >= PRECISE_WIDTH) {
+		if (maxX <= 0 || minX >= preciseWidth) {
 			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
 		}
 
@@ -242,11 +269,11 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			minX = 0;
 		}
 
-		if (maxX >= PRECISE_WIDTH_CLAMP) {
-			maxX = PRECISE_WIDTH_CLAMP;
+		if (maxX >= preciseWidthClamp) {
+			maxX = preciseWidthClamp;
 
-			if (minX > PRECISE_WIDTH_CLAMP) {
-				minX = PRECISE_WIDTH_CLAMP;
+			if (minX > preciseWidthClamp) {
+				minX = preciseWidthClamp;
 			}
 		}
 
@@ -254,11 +281,11 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			minY = 0;
 		}
 
-		if (maxY >= PRECISE_HEIGHT_CLAMP) {
-			maxY = PRECISE_HEIGHT_CLAMP;
+		if (maxY >= preciseHeightClamp) {
+			maxY = preciseHeightClamp;
 
-			if (minY > PRECISE_HEIGHT_CLAMP) {
-				minY = PRECISE_HEIGHT_CLAMP;
+			if (minY > preciseHeightClamp) {
+				minY = preciseHeightClamp;
 			}
 		}
 
@@ -391,11 +418,11 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			maxY = dy0;
 		}
 
-		if (maxY <= 0 || minY >= PRECISE_HEIGHT) {
+		if (maxY <= 0 || minY >= preciseHeight) {
 			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
 		}
 
-		if (maxX <= 0 || minX >= PRECISE_WIDTH) {
+		if (maxX <= 0 || minX >= preciseWidth) {
 			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
 		}
 
@@ -403,11 +430,11 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			minX = 0;
 		}
 
-		if (maxX >= PRECISE_WIDTH_CLAMP) {
-			maxX = PRECISE_WIDTH_CLAMP;
+		if (maxX >= preciseWidthClamp) {
+			maxX = preciseWidthClamp;
 
-			if (minX > PRECISE_WIDTH_CLAMP) {
-				minX = PRECISE_WIDTH_CLAMP;
+			if (minX > preciseWidthClamp) {
+				minX = preciseWidthClamp;
 			}
 		}
 
@@ -415,11 +442,11 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			minY = 0;
 		}
 
-		if (maxY >= PRECISE_HEIGHT_CLAMP) {
-			maxY = PRECISE_HEIGHT_CLAMP;
+		if (maxY >= preciseHeightClamp) {
+			maxY = preciseHeightClamp;
 
-			if (minY > PRECISE_HEIGHT_CLAMP) {
-				minY = PRECISE_HEIGHT_CLAMP;
+			if (minY > preciseHeightClamp) {
+				minY = preciseHeightClamp;
 			}
 		}
 
@@ -541,11 +568,11 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			maxY = dy0;
 		}
 
-		if (maxY <= 0 || minY >= PRECISE_HEIGHT) {
+		if (maxY <= 0 || minY >= preciseHeight) {
 			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
 		}
 
-		if (maxX <= 0 || minX >= PRECISE_WIDTH) {
+		if (maxX <= 0 || minX >= preciseWidth) {
 			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
 		}
 
@@ -553,11 +580,11 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			minX = 0;
 		}
 
-		if (maxX >= PRECISE_WIDTH_CLAMP) {
-			maxX = PRECISE_WIDTH_CLAMP;
+		if (maxX >= preciseWidthClamp) {
+			maxX = preciseWidthClamp;
 
-			if (minX > PRECISE_WIDTH_CLAMP) {
-				minX = PRECISE_WIDTH_CLAMP;
+			if (minX > preciseWidthClamp) {
+				minX = preciseWidthClamp;
 			}
 		}
 
@@ -565,11 +592,11 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			minY = 0;
 		}
 
-		if (maxY >= PRECISE_HEIGHT_CLAMP) {
-			maxY = PRECISE_HEIGHT_CLAMP;
+		if (maxY >= preciseHeightClamp) {
+			maxY = preciseHeightClamp;
 
-			if (minY > PRECISE_HEIGHT_CLAMP) {
-				minY = PRECISE_HEIGHT_CLAMP;
+			if (minY > preciseHeightClamp) {
+				minY = preciseHeightClamp;
 			}
 		}
 
@@ -677,11 +704,251 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			maxY = dy0;
 		}
 
-		if (maxY <= 0 || minY >= PRECISE_HEIGHT) {
+		if (maxY <= 0 || minY >= preciseHeight) {
+			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
+		}
+
+		if (maxX <= 0 || minX >= preciseWidth) {
+			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
+		}
+
+		if (minX < 0) {
+			minX = 0;
+		}
+
+		if (maxX >= preciseWidthClamp) {
+			maxX = preciseWidthClamp;
+
+			if (minX > preciseWidthClamp) {
+				minX = preciseWidthClamp;
+			}
+		}
+
+		if (minY < 0) {
+			minY = 0;
+		}
+
+		if (maxY >= preciseHeightClamp) {
+			maxY = preciseHeightClamp;
+
+			if (minY > preciseHeightClamp) {
+				minY = preciseHeightClamp;
+			}
+		}
+
+		final int minPixelX = ((minX + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		final int minPixelY = ((minY + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		final int maxPixelX = ((maxX + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		final int maxPixelY = ((maxY + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+
+		final int position0 = edgePosition(ax0, ay0, ax1, ay1);
+		final int position1 = edgePosition(bx0, by0, bx1, by1);
+		final int position2 = edgePosition(cx0, cy0, cx1, cy1);
+		final int position3 = edgePosition(dx0, dy0, dx1, dy1);
+
+		this.minPixelX = minPixelX;
+		this.minPixelY = minPixelY;
+		this.maxPixelX = maxPixelX;
+		this.maxPixelY = maxPixelY;
+		data[IDX_AX0] = ax0;
+		data[IDX_AY0] = ay0;
+		data[IDX_AX1] = ax1;
+		data[IDX_AY1] = ay1;
+		data[IDX_BX0] = bx0;
+		data[IDX_BY0] = by0;
+		data[IDX_BX1] = bx1;
+		data[IDX_BY1] = by1;
+		data[IDX_CX0] = cx0;
+		data[IDX_CY0] = cy0;
+		data[IDX_CX1] = cx1;
+		data[IDX_CY1] = cy1;
+		data[IDX_DX0] = dx0;
+		data[IDX_DY0] = dy0;
+		data[IDX_DX1] = dx1;
+		data[IDX_DY1] = dy1;
+		pos0 = position0;
+		pos1 = position1;
+		pos2 = position2;
+		pos3 = position3;
+
+		final int eventKey = (position0 - 1) & EVENT_POSITION_MASK
+				| (((position1 - 1) & EVENT_POSITION_MASK) << 2)
+				| (((position2 - 1) & EVENT_POSITION_MASK) << 4)
+				| (((position3 - 1) & EVENT_POSITION_MASK) << 6);
+
+		prepareEvents(eventKey);
+		return BOUNDS_IN;
+	}
+
+	@Override
+	int prepareTriangleBounds(int v0, int v1, int v2) {
+		// puts bits in lexical order
+		final int split = needsNearClip(v2) | (needsNearClip(v1) << 1) | (needsNearClip(v0) << 2);
+
+		switch (split) {
+			case 0b000:
+				return prepareTriangleBoundsNoClip(v0, v1, v2);
+
+			case 0b001:
+				return prepareTriangleBounds001(v0, v1, v2);
+
+			case 0b010:
+				return prepareTriangleBounds001(v2, v0, v1);
+
+			case 0b100:
+				return prepareTriangleBounds001(v1, v2, v0);
+
+			case 0b011:
+				return prepareTriangleBounds011(v0, v1, v2);
+
+			case 0b110:
+				return prepareTriangleBounds011(v2, v0, v1);
+
+			case 0b101:
+				return prepareTriangleBounds011(v1, v2, v0);
+
+			case 0b111:
+				return BOUNDS_OUTSIDE_OR_TOO_SMALL;
+
+			default:
+				assert false : "Occlusion edge case";
+				// NOOP
+		}
+
+		return BOUNDS_OUTSIDE_OR_TOO_SMALL;
+	}
+
+	/**
+	 * Clips the polygon to the near plane one edge at a time (Sutherland-Hodgman).
+	 * Clipping a convex polygon to a single plane adds at most one vertex.
+	 */
+	@Override
+	int preparePolygonBounds(int vertexCount) {
+		final int[] vertices = polygonVertices;
+		int split = 0;
+
+		for (int i = 0; i < vertexCount; ++i) {
+			split |= needsNearClip(vertices[i]) << i;
+		}
+
+		if (split == 0) {
+			return preparePolygonBoundsNoClip(vertexCount);
+		} else if (split == (1 << vertexCount) - 1) {
+			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
+		}
+
+		final int[] data = vertexData;
+		final int[] polygonX = this.polygonX;
+		final int[] polygonY = this.polygonY;
+		int pointCount = 0;
+
+		for (int i = 0; i < vertexCount; ++i) {
+			final int j = i + 1 == vertexCount ? 0 : i + 1;
+			final int v = vertices[i];
+			final boolean outside = ((split >> i) & 1) == 1;
+
+			if (!outside) {
+				polygonX[pointCount] = data[v + PV_PX];
+				polygonY[pointCount++] = data[v + PV_PY];
+			}
+
+			if (outside != (((split >> j) & 1) == 1)) {
+				if (outside) {
+					clipNear(vertices[j], v);
+				} else {
+					clipNear(v, vertices[j]);
+				}
+
+				polygonX[pointCount] = clipX;
+				polygonY[pointCount++] = clipY;
+			}
+		}
+
+		return preparePolygonPoints(pointCount);
+	}
+
+	/**
+	 * Clipping one vertex of a triangle leaves a quad, so output goes to the quad event fillers.
+	 * Unlike clipped quads, the edge along the near plane is kept because there is room for it.
+	 */
+	private int prepareTriangleBounds001(int v0, int v1, int ext2) {
+		final int[] data = vertexData;
+		int ax0, ay0, ax1, ay1;
+		int bx0, by0, bx1, by1;
+		int cx0, cy0, cx1, cy1;
+		int dx0, dy0, dx1, dy1;
+		int minY = 0, maxY = 0, minX = 0, maxX = 0;
+
+		ax0 = data[v0 + PV_PX];
+		ay0 = data[v0 + PV_PY];
+		ax1 = data[v1 + PV_PX];
+		ay1 = data[v1 + PV_PY];
+
+		bx0 = ax1;
+		by0 = ay1;
+		clipNear(v1, ext2);
+		bx1 = clipX;
+		by1 = clipY;
+
+		cx0 = bx1;
+		cy0 = by1;
+		clipNear(v0, ext2);
+		cx1 = clipX;
+		cy1 = clipY;
+
+		dx0 = cx1;
+		dy0 = cy1;
+		dx1 = ax0;
+		dy1 = ay0;
+
+		minX = ax0;
+		maxX = ax0;
+
+		// ax1 = bx0, bx1 = cx0, cx1 = dx0 and dx1 = ax0, so no need to test those
+		if (bx0 < minX) {
+			minX = bx0;
+		} else if (bx0 > maxX) {
+			maxX = bx0;
+		}
+
+		if (cx0 < minX) {
+			minX = cx0;
+		} else if (cx0 > maxX) {
+			maxX = cx0;
+		}
+
+		if (dx0 < minX) {
+			minX = dx0;
+		} else if (dx0 > maxX) {
+			maxX = dx0;
+		}
+
+		minY = ay0;
+		maxY = ay0;
+
+		if (by0 < minY) {
+			minY = by0;
+		} else if (by0 > maxY) {
+			maxY = by0;
+		}
+
+		if (cy0 < minY) {
+			minY = cy0;
+		} else if (cy0 > maxY) {
+			maxY = cy0;
+		}
+
+		if (dy0 < minY) {
+			minY = dy0;
+		} else if (dy0 > maxY) {
+			maxY = dy0;
+		}
+
+		if (maxY <= 0 || minY >= preciseHeight) {
 			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
 		}
 
-		if (maxX <= 0 || minX >= PRECISE_WIDTH) {
+		if (maxX <= 0 || minX >= preciseWidth) {
 			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
 		}
 
@@ -689,11 +956,11 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			minX = 0;
 		}
 
-		if (maxX >= PRECISE_WIDTH_CLAMP) {
-			maxX = PRECISE_WIDTH_CLAMP;
+		if (maxX >= preciseWidthClamp) {
+			maxX = preciseWidthClamp;
 
-			if (minX > PRECISE_WIDTH_CLAMP) {
-				minX = PRECISE_WIDTH_CLAMP;
+			if (minX > preciseWidthClamp) {
+				minX = preciseWidthClamp;
 			}
 		}
 
@@ -701,11 +968,11 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 			minY = 0;
 		}
 
-		if (maxY >= PRECISE_HEIGHT_CLAMP) {
-			maxY = PRECISE_HEIGHT_CLAMP;
+		if (maxY >= preciseHeightClamp) {
+			maxY = preciseHeightClamp;
 
-			if (minY > PRECISE_HEIGHT_CLAMP) {
-				minY = PRECISE_HEIGHT_CLAMP;
+			if (minY > preciseHeightClamp) {
+				minY = preciseHeightClamp;
 			}
 		}
 
@@ -752,4 +1019,130 @@ public final class PerspectiveRasterizer extends AbstractRasterizer {
 		prepareEvents(eventKey);
 		return BOUNDS_IN;
 	}
+
+	/**
+	 * Clipping two vertices of a triangle leaves a smaller triangle.
+	 */
+	private int prepareTriangleBounds011(int v0, int ext1, int ext2) {
+		final int[] data = vertexData;
+		int ax0, ay0, ax1, ay1;
+		int bx0, by0, bx1, by1;
+		int cx0, cy0, cx1, cy1;
+		int minY = 0, maxY = 0, minX = 0, maxX = 0;
+
+		ax0 = data[v0 + PV_PX];
+		ay0 = data[v0 + PV_PY];
+		clipNear(v0, ext1);
+		ax1 = clipX;
+		ay1 = clipY;
+
+		bx0 = ax1;
+		by0 = ay1;
+		clipNear(v0, ext2);
+		bx1 = clipX;
+		by1 = clipY;
+
+		cx0 = bx1;
+		cy0 = by1;
+		cx1 = ax0;
+		cy1 = ay0;
+
+		minX = ax0;
+		maxX = ax0;
+
+		if (bx0 < minX) {
+			minX = bx0;
+		} else if (bx0 > maxX) {
+			maxX = bx0;
+		}
+
+		if (cx0 < minX) {
+			minX = cx0;
+		} else if (cx0 > maxX) {
+			maxX = cx0;
+		}
+
+		minY = ay0;
+		maxY = ay0;
+
+		if (by0 < minY) {
+			minY = by0;
+		} else if (by0 > maxY) {
+			maxY = by0;
+		}
+
+		if (cy0 < minY) {
+			minY = cy0;
+		} else if (cy0 > maxY) {
+			maxY = cy0;
+		}
+
+		if (maxY <= 0 || minY >= preciseHeight) {
+			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
+		}
+
+		if (maxX <= 0 || minX >= preciseWidth) {
+			return BOUNDS_OUTSIDE_OR_TOO_SMALL;
+		}
+
+		if (minX < 0) {
+			minX = 0;
+		}
+
+		if (maxX >= preciseWidthClamp) {
+			maxX = preciseWidthClamp;
+
+			if (minX > preciseWidthClamp) {
+				minX = preciseWidthClamp;
+			}
+		}
+
+		if (minY < 0) {
+			minY = 0;
+		}
+
+		if (maxY >= preciseHeightClamp) {
+			maxY = preciseHeightClamp;
+
+			if (minY > preciseHeightClamp) {
+				minY = preciseHeightClamp;
+			}
+		}
+
+		final int minPixelX = ((minX + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		final int minPixelY = ((minY + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		final int maxPixelX = ((maxX + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+		final int maxPixelY = ((maxY + SCANT_PRECISE_PIXEL_CENTER) >> PRECISION_BITS);
+
+		final int position0 = edgePosition(ax0, ay0, ax1, ay1);
+		final int position1 = edgePosition(bx0, by0, bx1, by1);
+		final int position2 = edgePosition(cx0, cy0, cx1, cy1);
+
+		this.minPixelX = minPixelX;
+		this.minPixelY = minPixelY;
+		this.maxPixelX = maxPixelX;
+		this.maxPixelY = maxPixelY;
+		data[IDX_AX0] = ax0;
+		data[IDX_AY0] = ay0;
+		data[IDX_AX1] = ax1;
+		data[IDX_AY1] = ay1;
+		data[IDX_BX0] = bx0;
+		data[IDX_BY0] = by0;
+		data[IDX_BX1] = bx1;
+		data[IDX_BY1] = by1;
+		data[IDX_CX0] = cx0;
+		data[IDX_CY0] = cy0;
+		data[IDX_CX1] = cx1;
+		data[IDX_CY1] = cy1;
+		pos0 = position0;
+		pos1 = position1;
+		pos2 = position2;
+
+		final int eventKey = (position0 - 1) & EVENT_POSITION_MASK
+				| (((position1 - 1) & EVENT_POSITION_MASK) << 2)
+				| (((position2 - 1) & EVENT_POSITION_MASK) << 4);
+
+		prepareTriangleEvents(eventKey);
+		return BOUNDS_IN;
+	}
 }
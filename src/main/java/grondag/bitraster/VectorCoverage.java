@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2019, 2020 grondag
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ *  use this file except in compliance with the License.  You may obtain a copy
+ *  of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ *  License for the specific language governing permissions and limitations under
+ *  the License.
+ */
+
+package grondag.bitraster;
+
+import static grondag.bitraster.Constants.TILE_AXIS_SHIFT;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Computes tile coverage masks with all sixteen left and right events of a tile in vector lanes.
+ * Must only be loaded when the incubator module is present - see {@link AbstractRasterizer#VECTOR_COVERAGE}.
+ */
+abstract class VectorCoverage {
+	private VectorCoverage() {
+	}
+
+	private static final VectorSpecies<Integer> EVENT_SPECIES = IntVector.SPECIES_512;
+	private static final VectorSpecies<Long> ROW_SPECIES = LongVector.SPECIES_512;
+
+	/**
+	 * False when hardware vectors are too narrow to hold all events of a tile, in which case
+	 * the emulated vector operations would be much slower than the scalar path.
+	 */
+	static final boolean SUPPORTED = IntVector.SPECIES_PREFERRED.vectorBitSize() >= EVENT_SPECIES.vectorBitSize();
+
+	/** Odd lanes hold right events. */
+	private static final VectorMask<Integer> RIGHT_LANES = VectorMask.fromLong(EVENT_SPECIES, 0xAAAAL);
+
+	/** Negates right events so that one expression gives distance inside the tile from both edges. */
+	private static final IntVector EVENT_SIGN = IntVector.fromArray(EVENT_SPECIES, new int[] {1, -1, 1, -1, 1, -1, 1, -1, 1, -1, 1, -1, 1, -1, 1, -1}, 0);
+	private static final IntVector EVENT_OFFSET = IntVector.fromArray(EVENT_SPECIES, new int[] {0, 7, 0, 7, 0, 7, 0, 7, 0, 7, 0, 7, 0, 7, 0, 7}, 0);
+	private static final IntVector ROW_BITS = IntVector.broadcast(EVENT_SPECIES, 0xFF);
+	private static final LongVector ROW_SHIFTS = LongVector.fromArray(ROW_SPECIES, new long[] {0, 8, 16, 24, 32, 40, 48, 56}, 0);
+
+	/**
+	 * Same result as {@link AbstractRasterizer#computeTileCoverage(int, int)} without branches.
+	 * Left and right shifts are clamped to 0-8, and a shift of 8 leaves no bits in the row.
+	 */
+	static long computeTileCoverage(int[] eventData, int baseEventIndex, int tileFirstX) {
+		final IntVector events = IntVector.fromArray(EVENT_SPECIES, eventData, baseEventIndex);
+
+		// even lanes: left - firstX, odd lanes: lastX - right
+		final IntVector shifts = events.sub(tileFirstX).mul(EVENT_SIGN).add(EVENT_OFFSET).max(0).min(1 << TILE_AXIS_SHIFT);
+		final IntVector edges = ROW_BITS.lanewise(VectorOperators.LSHL, shifts).blend(ROW_BITS.lanewise(VectorOperators.LSHR, shifts), RIGHT_LANES);
+
+		// each long lane now holds the left mask of a row in the low half and the right mask in the high half
+		final LongVector pairs = edges.reinterpretAsLongs();
+		return pairs.and(pairs.lanewise(VectorOperators.LSHR, 32)).lanewise(VectorOperators.LSHL, ROW_SHIFTS).reduceLanes(VectorOperators.OR);
+	}
+}
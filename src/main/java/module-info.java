@@ -1,4 +1,4 @@
 module grondag.bitraster {
-	//requires jdk.incubator.vector;
+	requires static jdk.incubator.vector;
 	exports grondag.bitraster;
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package grondag.bitraster;
+
+import static grondag.bitraster.Constants.BOUNDS_CONCAVE;
+import static grondag.bitraster.Constants.V000;
+import static grondag.bitraster.Constants.V001;
+import static grondag.bitraster.Constants.V010;
+import static grondag.bitraster.Constants.V011;
+import static grondag.bitraster.Constants.V101;
+import static grondag.bitraster.Constants.V111;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A tall box seen nearly edge-on, where subpixel rounding leaves the silhouette hexagon
+ * slightly concave. Boxes drawn or tested as hexagons must cover every pixel of their faces.
+ */
+class ConcaveSilhouetteTest {
+	private static final int WIDTH = 1024;
+	private static final int HEIGHT = 576;
+	private static final int BOX = PackedBox.pack(3, 3, 4, 6, 16, 14, PackedBox.RANGE_NEAR);
+
+	private static class Occluder extends BoxOccluder {
+		Occluder() {
+			super(new PerspectiveRasterizer(WIDTH, HEIGHT));
+
+			final float yaw = -4.518308f;
+			final float pitch = -0.4562071f;
+			final float cy = (float) Math.cos(yaw), sy = (float) Math.sin(yaw);
+			final float cp = (float) Math.cos(pitch), sp = (float) Math.sin(pitch);
+
+			prepareScene(1, 7.3634, -3.5418, -1.9633,
+				m -> m.set(cy, 0, sy, 0, sp * sy, cp, -sp * cy, 0, -cp * sy, sp, cp * cy, 0, 0, 0, 0, 1),
+				m -> {
+					final float f = (float) (1 / Math.tan(Math.toRadians(35)));
+					final float near = 0.05f, far = 1000f;
+					m.set(f * HEIGHT / WIDTH, 0, 0, 0, 0, f, 0, 0, 0, 0, (far + near) / (near - far), 2 * far * near / (near - far), 0, 0, -1, 0);
+				});
+
+			prepareRegion(160, -16, -16, 0, 0);
+		}
+
+		@Override
+		public boolean isBoxVisible(int packedBox, int fuzz) {
+			return isBoxVisibleFromPerspective(packedBox, fuzz);
+		}
+
+		@Override
+		public void occludeBox(int packedBox) {
+			occludeFromPerspective(packedBox);
+		}
+	}
+
+	@Test
+	void concaveIsDetected() {
+		final AbstractRasterizer raster = new PerspectiveRasterizer(WIDTH, HEIGHT);
+		final int[] xs = {6704, 6705, 6765, 6766, 6276, 6192};
+		final int[] ys = {857, 867, 1562, 1566, 1568, 850};
+
+		for (int i = 0; i < 6; ++i) {
+			raster.polygonX[i] = xs[i];
+			raster.polygonY[i] = ys[i];
+		}
+
+		assert raster.preparePolygonPoints(6) == BOUNDS_CONCAVE;
+	}
+
+	@Test
+	void drawCoversFaces() {
+		final Occluder occluder = new Occluder();
+		occluder.occludeBox(BOX);
+		assertCoversFaces(occluder.raster);
+	}
+
+	@Test
+	void testAndDrawCoversFaces() {
+		final Occluder occluder = new Occluder();
+		assert occluder.testAndOccludeFromPerspective(BOX);
+		assertCoversFaces(occluder.raster);
+		assert !occluder.isBoxVisible(BOX, 0);
+	}
+
+	@Test
+	void clearTestSeesFaces() {
+		final Occluder occluder = new Occluder();
+		final AbstractRasterizer raster = occluder.raster;
+
+		// Leaves a band of the west face clear along the upper half of the edge shared with the
+		// south face, which is where half-plane merging of the rounded hexagon would cut a wedge
+		drawWestFace(raster, 3, 16, 4, 13);
+		drawWestFace(raster, 9, 16, 13, 14);
+		setupFaces(raster);
+		raster.drawQuad(V001, V101, V111, V011);
+
+		assert occluder.isBoxVisible(BOX, 0);
+	}
+
+	/** West and south faces, the two visible from the camera. */
+	private static AbstractRasterizer referenceFaces() {
+		final Occluder reference = new Occluder();
+		final AbstractRasterizer raster = reference.raster;
+		setupFaces(raster);
+		raster.drawQuad(V000, V001, V011, V010);
+		raster.drawQuad(V001, V101, V111, V011);
+		return raster;
+	}
+
+	private static void drawWestFace(AbstractRasterizer raster, int y0, int y1, int z0, int z1) {
+		final int x = PackedBox.x0(BOX);
+		raster.setupVertex(V000, x, y0, z0);
+		raster.setupVertex(V001, x, y0, z1);
+		raster.setupVertex(V011, x, y1, z1);
+		raster.setupVertex(V010, x, y1, z0);
+		raster.drawQuad(V000, V001, V011, V010);
+	}
+
+	private static void setupFaces(AbstractRasterizer raster) {
+		final int x0 = PackedBox.x0(BOX), y0 = PackedBox.y0(BOX), z0 = PackedBox.z0(BOX);
+		final int x1 = PackedBox.x1(BOX), y1 = PackedBox.y1(BOX), z1 = PackedBox.z1(BOX);
+		raster.setupVertex(V000, x0, y0, z0);
+		raster.setupVertex(V001, x0, y0, z1);
+		raster.setupVertex(V010, x0, y1, z0);
+		raster.setupVertex(V011, x0, y1, z1);
+		raster.setupVertex(V101, x1, y0, z1);
+		raster.setupVertex(V111, x1, y1, z1);
+	}
+
+	private static void assertCoversFaces(AbstractRasterizer raster) {
+		final AbstractRasterizer expected = referenceFaces();
+		int count = 0;
+
+		for (int y = 0; y < HEIGHT; ++y) {
+			for (int x = 0; x < WIDTH; ++x) {
+				if (expected.isPixelSet(x, y)) {
+					assert raster.isPixelSet(x, y);
+					++count;
+				}
+			}
+		}
+
+		assert count > 1000;
+	}
+}
@@ -0,0 +1,130 @@
+package grondag.bitraster;
+
+import java.util.Random;
+
+/**
+ * Compares tile coverage implementations on events from random edge-heavy spans.
+ * Results are printed - run by hand, not part of the tests.  See {@link TileCoverageTest}
+ * for equivalence of the implementations.
+ */
+final class TileCoverageBenchmark {
+	private static final int ROWS = 2048;
+	private static final int TILE_ROWS = ROWS / 8;
+	private static final int TILE_COLUMNS = 256;
+	private static final int PASSES = 1000;
+	// enough distinct frames that branch history can't be learned across passes
+	private static final int SETS = 64;
+
+	@FunctionalInterface
+	private interface Coverage {
+		long apply(int[] data, int baseEventIndex, int tileFirstX);
+	}
+
+	private TileCoverageBenchmark() {
+	}
+
+	public static void main(String[] args) {
+		final Random random = new Random(42);
+		final int[][] events = new int[SETS][];
+		final int[][] bounds = new int[SETS][];
+
+		for (int i = 0; i < SETS; ++i) {
+			events[i] = randomEvents(random);
+			bounds[i] = tileBounds(events[i]);
+		}
+
+		// first round is warm up
+		for (int i = 0; i < 3; ++i) {
+			run("branching", events, bounds, AbstractRasterizer::computeTileCoverageBranching);
+			run("spans", events, bounds, AbstractRasterizer::computeTileCoverageSpans);
+		}
+	}
+
+	private static void run(String label, int[][] eventSets, int[][] boundSets, Coverage coverage) {
+		final MicroTimer timer = new MicroTimer(label, PASSES);
+		long result = 0;
+
+		for (int pass = 0; pass < PASSES; ++pass) {
+			final int[] events = eventSets[pass % SETS];
+			final int[] bounds = boundSets[pass % SETS];
+			timer.start();
+
+			for (int tileY = 0; tileY < TILE_ROWS; ++tileY) {
+				final int base = tileY << 4;
+
+				for (int tileX = bounds[tileY * 2]; tileX <= bounds[tileY * 2 + 1]; ++tileX) {
+					result += coverage.apply(events, base, tileX << 3);
+				}
+			}
+
+			timer.stop(false);
+		}
+
+		// keep result live
+		if (result == 42) {
+			System.out.println();
+		}
+	}
+
+	/**
+	 * Tile columns within the bounding box of the span in each tile row,
+	 * like the range that would be visited when drawing or testing a quad.
+	 */
+	private static int[] tileBounds(int[] events) {
+		final int[] bounds = new int[TILE_ROWS * 2];
+
+		for (int tileY = 0; tileY < TILE_ROWS; ++tileY) {
+			int min = TILE_COLUMNS;
+			int max = -1;
+
+			for (int y = tileY << 3; y < (tileY + 1) << 3; ++y) {
+				if (events[y * 2] <= events[y * 2 + 1]) {
+					min = Math.min(min, Math.max(0, events[y * 2]) >> 3);
+					max = Math.max(max, Math.min(2047, events[y * 2 + 1]) >> 3);
+				}
+			}
+
+			bounds[tileY * 2] = min;
+			bounds[tileY * 2 + 1] = max;
+		}
+
+		return bounds;
+	}
+
+	/**
+	 * Spans are a few pixels to a few hundred pixels wide with sloped edges,
+	 * so most tiles they touch are partially covered. Each span starts on a tile
+	 * row so that rows within a tile are convex, as they would be for a real quad.
+	 */
+	static int[] randomEvents(Random r) {
+		final int[] events = new int[ROWS * 2];
+		int y = 0;
+
+		while (y < ROWS) {
+			final int height = 8 + (r.nextInt(16) << 3);
+			float left = r.nextInt(2048);
+			float right = left + r.nextInt(300);
+			final float leftSlope = r.nextFloat() * 6 - 3;
+			final float rightSlope = r.nextFloat() * 6 - 3;
+
+			for (int i = 0; i < height && y < ROWS; ++i, ++y) {
+				final int l = (int) left;
+				final int rt = (int) right;
+
+				if (l > rt) {
+					// empty row
+					events[y * 2] = 2048;
+					events[y * 2 + 1] = -1;
+				} else {
+					events[y * 2] = l;
+					events[y * 2 + 1] = rt;
+				}
+
+				left += leftSlope;
+				right += rightSlope;
+			}
+		}
+
+		return events;
+	}
+}
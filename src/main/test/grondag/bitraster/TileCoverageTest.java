@@ -0,0 +1,33 @@
+package grondag.bitraster;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every tile coverage implementation gives the same words for the same events.
+ */
+class TileCoverageTest {
+	private static final int TILE_ROWS = 2048 / 8;
+	private static final int TILE_COLUMNS = 256;
+
+	@Test
+	void sameCoverage() {
+		final Random random = new Random(42);
+
+		for (int set = 0; set < 16; ++set) {
+			final int[] events = TileCoverageBenchmark.randomEvents(random);
+
+			for (int tileY = 0; tileY < TILE_ROWS; ++tileY) {
+				for (int tileX = 0; tileX < TILE_COLUMNS; ++tileX) {
+					final int base = tileY << 4;
+					final int firstX = tileX << 3;
+					final long expected = AbstractRasterizer.computeTileCoverageBranching(events, base, firstX);
+
+					assert AbstractRasterizer.computeTileCoverageSpans(events, base, firstX) == expected;
+					assert !AbstractRasterizer.VECTOR_COVERAGE || VectorCoverage.computeTileCoverage(events, base, firstX) == expected;
+				}
+			}
+		}
+	}
+}
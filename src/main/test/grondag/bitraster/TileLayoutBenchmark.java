@@ -0,0 +1,126 @@
+package grondag.bitraster;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares row-major and Morton tile layouts by walking random tile rectangles the same way
+ * quads are drawn: block by block, and row by row within each block.  Prints times and the
+ * number of distinct cache lines each layout touches - run by hand, not part of the tests.
+ * See {@link TileLayoutTest} for equivalence of the layouts.
+ */
+final class TileLayoutBenchmark {
+	static final int TILE_WIDTH_BITS = 8;
+	static final int TILE_ROWS = 256;
+	static final int TILE_COUNT = TILE_ROWS << TILE_WIDTH_BITS;
+	static final int RECTS = 4096;
+	private static final int PASSES = 200;
+	private static final int TILES_PER_CACHE_LINE = 8;
+
+	@FunctionalInterface
+	private interface Layout {
+		int tileIndex(int tileX, int tileY, int tileWidthBits);
+	}
+
+	private TileLayoutBenchmark() {
+	}
+
+	public static void main(String[] args) {
+		final Random random = new Random(42);
+		final int[] tall = randomRects(random, true);
+		final int[] wide = randomRects(random, false);
+
+		System.out.println("Cache lines per tall rect - row: " + cacheLines(tall, Indexer::rowTileIndex) + "  morton: " + cacheLines(tall, Indexer::mortonTileIndex));
+		System.out.println("Cache lines per wide rect - row: " + cacheLines(wide, Indexer::rowTileIndex) + "  morton: " + cacheLines(wide, Indexer::mortonTileIndex));
+
+		// first round is warm up
+		for (int i = 0; i < 3; ++i) {
+			run("row tall", tall, Indexer::rowTileIndex);
+			run("morton tall", tall, Indexer::mortonTileIndex);
+			run("row wide", wide, Indexer::rowTileIndex);
+			run("morton wide", wide, Indexer::mortonTileIndex);
+		}
+	}
+
+	private static void run(String label, int[] rects, Layout layout) {
+		final MicroTimer timer = new MicroTimer(label, PASSES);
+		final long[] tiles = new long[TILE_COUNT];
+
+		for (int pass = 0; pass < PASSES; ++pass) {
+			timer.start();
+
+			for (int i = 0; i < RECTS; ++i) {
+				final long bits = 1L << ((pass + i) & 63);
+				final int minTileX = rects[i * 4];
+				final int minTileY = rects[i * 4 + 1];
+				final int maxTileX = rects[i * 4 + 2];
+				final int maxTileY = rects[i * 4 + 3];
+
+				for (int blockY = minTileY >> 3; blockY <= maxTileY >> 3; ++blockY) {
+					for (int blockX = minTileX >> 3; blockX <= maxTileX >> 3; ++blockX) {
+						final int y1 = Math.min(maxTileY, (blockY << 3) + 7);
+						final int x1 = Math.min(maxTileX, (blockX << 3) + 7);
+
+						for (int tileY = Math.max(minTileY, blockY << 3); tileY <= y1; ++tileY) {
+							for (int tileX = Math.max(minTileX, blockX << 3); tileX <= x1; ++tileX) {
+								tiles[layout.tileIndex(tileX, tileY, TILE_WIDTH_BITS)] |= bits;
+							}
+						}
+					}
+				}
+			}
+
+			timer.stop(false);
+		}
+
+		// keep result live
+		if (tiles[42] == 42) {
+			System.out.println();
+		}
+	}
+
+	private static float cacheLines(int[] rects, Layout layout) {
+		final boolean[] touched = new boolean[TILE_COUNT / TILES_PER_CACHE_LINE];
+		long total = 0;
+
+		for (int i = 0; i < RECTS; ++i) {
+			Arrays.fill(touched, false);
+
+			for (int tileY = rects[i * 4 + 1]; tileY <= rects[i * 4 + 3]; ++tileY) {
+				for (int tileX = rects[i * 4]; tileX <= rects[i * 4 + 2]; ++tileX) {
+					final int line = layout.tileIndex(tileX, tileY, TILE_WIDTH_BITS) / TILES_PER_CACHE_LINE;
+
+					if (!touched[line]) {
+						touched[line] = true;
+						++total;
+					}
+				}
+			}
+		}
+
+		return (float) total / RECTS;
+	}
+
+	/**
+	 * Tall rectangles are one to three tiles wide and up to 120 tiles tall, like walls and
+	 * tree trunks seen from nearby. Wide ones are the same rotated.
+	 */
+	static int[] randomRects(Random r, boolean tall) {
+		final int[] rects = new int[RECTS * 4];
+
+		for (int i = 0; i < RECTS; ++i) {
+			final int narrow = 1 + r.nextInt(3);
+			final int length = 8 + r.nextInt(113);
+			final int w = tall ? narrow : length;
+			final int h = tall ? length : narrow;
+			final int x = r.nextInt((1 << TILE_WIDTH_BITS) - w);
+			final int y = r.nextInt(TILE_ROWS - h);
+			rects[i * 4] = x;
+			rects[i * 4 + 1] = y;
+			rects[i * 4 + 2] = x + w - 1;
+			rects[i * 4 + 3] = y + h - 1;
+		}
+
+		return rects;
+	}
+}
@@ -0,0 +1,58 @@
+package grondag.bitraster;
+
+import static grondag.bitraster.TileLayoutBenchmark.RECTS;
+import static grondag.bitraster.TileLayoutBenchmark.TILE_COUNT;
+import static grondag.bitraster.TileLayoutBenchmark.TILE_ROWS;
+import static grondag.bitraster.TileLayoutBenchmark.TILE_WIDTH_BITS;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Morton tile indices cover the same tiles as row-major indices, with 64 tiles per block.
+ */
+class TileLayoutTest {
+	@Test
+	void mortonIndex() {
+		final boolean[] used = new boolean[TILE_COUNT];
+
+		for (int tileY = 0; tileY < TILE_ROWS; ++tileY) {
+			for (int tileX = 0; tileX < 1 << TILE_WIDTH_BITS; ++tileX) {
+				final int z = Indexer.mortonTileIndex(tileX, tileY, TILE_WIDTH_BITS);
+				assert z >= 0 && z < TILE_COUNT && !used[z];
+				assert Indexer.mortonX(z & 63) == (tileX & 7) && Indexer.mortonY(z & 63) == (tileY & 7);
+				assert z >> 6 == ((tileX >> 3) | ((tileY >> 3) << (TILE_WIDTH_BITS - 3)));
+				used[z] = true;
+			}
+		}
+	}
+
+	@Test
+	void sameTiles() {
+		final Random random = new Random(42);
+
+		for (final boolean tall : new boolean[] {true, false}) {
+			final int[] rects = TileLayoutBenchmark.randomRects(random, tall);
+			final long[] row = new long[TILE_COUNT];
+			final long[] morton = new long[TILE_COUNT];
+
+			for (int i = 0; i < RECTS; ++i) {
+				final long bits = 1L << (i & 63);
+
+				for (int tileY = rects[i * 4 + 1]; tileY <= rects[i * 4 + 3]; ++tileY) {
+					for (int tileX = rects[i * 4]; tileX <= rects[i * 4 + 2]; ++tileX) {
+						row[Indexer.rowTileIndex(tileX, tileY, TILE_WIDTH_BITS)] |= bits;
+						morton[Indexer.mortonTileIndex(tileX, tileY, TILE_WIDTH_BITS)] |= bits;
+					}
+				}
+			}
+
+			for (int tileY = 0; tileY < TILE_ROWS; ++tileY) {
+				for (int tileX = 0; tileX < 1 << TILE_WIDTH_BITS; ++tileX) {
+					assert row[Indexer.rowTileIndex(tileX, tileY, TILE_WIDTH_BITS)] == morton[Indexer.mortonTileIndex(tileX, tileY, TILE_WIDTH_BITS)];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package grondag.bitraster.test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import grondag.bitraster.AbstractRasterizer;
+import grondag.bitraster.BoxOccluder;
+import grondag.bitraster.Matrix4L;
+import grondag.bitraster.PackedBox;
+import grondag.bitraster.PerspectiveRasterizer;
+
+/**
+ * Every raster mode gives the same pixels and test results as dense tiles drawn immediately.
+ * Tile layout and coverage flags are read once when the rasterizer loads, so those are
+ * checked by running {@link #main(String[])} in another JVM launched with each flag.
+ */
+class ModeEquivalenceTest {
+	private static final int[][] SIZES = {{2048, 2048}, {1024, 576}, {512, 512}, {256, 144}};
+	private static final String[] FLAGS = {"-Dbitraster.offHeapTiles=true", "-Dbitraster.mortonTiles=true", "-Dbitraster.noSmallShapes=true"};
+	private static final int SCENES = 2;
+	private static final int BOXES = 2000;
+	private static final int TESTS = 500;
+
+	private static class Occluder extends BoxOccluder {
+		Occluder(AbstractRasterizer raster) {
+			super(raster);
+		}
+
+		@Override
+		public boolean isBoxVisible(int packedBox, int fuzz) {
+			return isBoxVisibleFromPerspective(packedBox, fuzz);
+		}
+
+		@Override
+		public void occludeBox(int packedBox) {
+			occludeFromPerspective(packedBox);
+		}
+
+		@Override
+		public boolean testAndOccludeBox(int packedBox) {
+			return testAndOccludeFromPerspective(packedBox);
+		}
+
+		/** Hash of every pixel, in rows. */
+		long pixelHash() {
+			final AbstractRasterizer raster = this.raster;
+			final int width = raster.pixelWidth();
+			final int height = raster.pixelHeight();
+			long hash = 0;
+
+			for (int y = 0; y < height; ++y) {
+				for (int x = 0; x < width; x += 64) {
+					long word = 0;
+
+					for (int i = 0; i < 64; ++i) {
+						if (raster.isPixelSet(x + i, y)) {
+							word |= 1L << i;
+						}
+					}
+
+					hash = hash * 1_000_003 + word;
+				}
+			}
+
+			return hash;
+		}
+	}
+
+	@Test
+	void sparse() {
+		assert Arrays.equals(digests(false, o -> { }), digests(true, o -> { }));
+	}
+
+	@Test
+	void deferred() {
+		assert Arrays.equals(digests(false, o -> { }), digests(false, o -> o.deferredDrawing(true)));
+		assert Arrays.equals(digests(false, o -> { }), digests(true, o -> o.deferredDrawing(true)));
+	}
+
+	@Test
+	void parallel() {
+		final ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			assert Arrays.equals(digests(false, o -> { }), digests(false, o -> o.parallelDrawing(pool)));
+			assert Arrays.equals(digests(false, o -> { }), digests(true, o -> o.parallelDrawing(pool)));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void flags() throws IOException, InterruptedException {
+		final long[] expected = digests(false, o -> { });
+
+		for (final String flag : FLAGS) {
+			assert Arrays.equals(expected, launch(flag)) : flag;
+		}
+	}
+
+	/** Prints {@link #digests(boolean, Consumer)} of dense tiles, one per line, for {@link #flags()}. */
+	public static void main(String[] args) {
+		for (final long digest : digests(false, o -> { })) {
+			System.out.println(digest);
+		}
+	}
+
+	private static long[] launch(String flag) throws IOException, InterruptedException {
+		final List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + "/bin/java");
+
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			command.add("--add-modules");
+			command.add("jdk.incubator.vector");
+		}
+
+		command.add(flag);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ModeEquivalenceTest.class.getName());
+
+		final Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+		final long[] result;
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			result = reader.lines().mapToLong(Long::parseLong).toArray();
+		}
+
+		assert process.waitFor() == 0 : flag;
+		return result;
+	}
+
+	/**
+	 * Draws and tests the same seeded scenes at each size, with and without depth and inner
+	 * coverage, and returns a hash of test results and a hash of pixels for each scene.
+	 * Even scenes use test-and-occlude for every box and odd scenes draw them all first.
+	 */
+	static long[] digests(boolean sparseTiles, Consumer<BoxOccluder> mode) {
+		final long[] result = new long[SIZES.length * 4 * SCENES * 2];
+		int n = 0;
+
+		for (final int[] size : SIZES) {
+			for (int options = 0; options < 4; ++options) {
+				final Random random = new Random(7);
+				final Occluder occluder = new Occluder(new PerspectiveRasterizer(size[0], size[1], sparseTiles));
+				occluder.depthTesting((options & 1) != 0);
+				occluder.innerOccluders((options & 2) != 0);
+				mode.accept(occluder);
+
+				for (int scene = 0; scene < SCENES; ++scene) {
+					final float aspect = (float) size[0] / size[1];
+					final float yaw = random.nextFloat() * 6.28f;
+					final float cos = (float) StrictMath.cos(yaw);
+					final float sin = (float) StrictMath.sin(yaw);
+
+					occluder.prepareScene(scene + 1, random.nextDouble() * 16, random.nextDouble() * 16, random.nextDouble() * 16,
+						m -> m.set(cos, 0, -sin, 0, 0, 1, 0, 0, sin, 0, cos, 0, 0, 0, 0, 1),
+						m -> projection(m, aspect));
+
+					final int[] boxes = new int[BOXES];
+					final int[] origins = new int[BOXES * 3];
+
+					for (int i = 0; i < BOXES; ++i) {
+						final int x0 = random.nextInt(15), y0 = random.nextInt(15), z0 = random.nextInt(15);
+						boxes[i] = PackedBox.pack(x0, y0, z0, x0 + 1 + random.nextInt(16 - x0), y0 + 1 + random.nextInt(16 - y0), z0 + 1 + random.nextInt(16 - z0), PackedBox.RANGE_NEAR);
+						origins[i * 3] = (random.nextInt(20) - 10) * 16;
+						origins[i * 3 + 1] = (random.nextInt(6) - 3) * 16;
+						origins[i * 3 + 2] = (random.nextInt(20) - 10) * 16;
+					}
+
+					long hash = 0;
+
+					for (int i = 0; i < BOXES; ++i) {
+						occluder.prepareRegion(origins[i * 3], origins[i * 3 + 1], origins[i * 3 + 2], 0, 0);
+
+						if ((scene & 1) == 0) {
+							hash = hash * 31 + (occluder.testAndOccludeBox(boxes[i]) ? 1 : 0);
+						} else {
+							occluder.occludeBox(boxes[i]);
+						}
+					}
+
+					for (int i = 0; i < TESTS; ++i) {
+						occluder.prepareRegion(origins[i * 3], origins[i * 3 + 1], origins[i * 3 + 2], 0, 0);
+						hash = hash * 31 + (occluder.isBoxVisible(boxes[i], 0) ? 1 : 0);
+					}
+
+					result[n++] = hash;
+					result[n++] = occluder.pixelHash();
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static void projection(Matrix4L m, float aspect) {
+		final float f = 1.5f, near = 0.05f, far = 1000f;
+		m.set(f / aspect, 0, 0, 0, 0, f, 0, 0, 0, 0, (far + near) / (near - far), 2 * far * near / (near - far), 0, 0, -1, 0);
+	}
+}
@@ -5,6 +5,7 @@ import java.util.concurrent.ThreadLocalRandom;
 
 import org.junit.jupiter.api.Test;
 
+import grondag.bitraster.OccluderLod;
 import grondag.bitraster.PackedBox;
 
 class PackedBoxTest {
@@ -32,4 +33,51 @@ class PackedBoxTest {
 			assert PackedBox.z1(bounds) == z1;
 		}
 	}
+
+	@Test
+	void mergedBoxes() {
+		final Random r = ThreadLocalRandom.current();
+
+		for (int i = 0; i < 200; i++) {
+			final int[] visData = new int[1 + r.nextInt(12)];
+			final boolean[] filled = new boolean[4096];
+
+			for (int j = 1; j < visData.length; j++) {
+				final int x0 = r.nextInt(16);
+				final int y0 = r.nextInt(16);
+				final int z0 = r.nextInt(16);
+				final int x1 = Math.min(16, x0 + r.nextInt(15) + 1);
+				final int y1 = Math.min(16, y0 + r.nextInt(15) + 1);
+				final int z1 = Math.min(16, z0 + r.nextInt(15) + 1);
+				visData[j] = PackedBox.pack(x0, y0, z0, x1, y1, z1, PackedBox.RANGE_NEAR);
+
+				for (int x = x0; x < x1; x++) {
+					for (int y = y0; y < y1; y++) {
+						for (int z = z0; z < z1; z++) {
+							filled[x | (y << 4) | (z << 8)] = true;
+						}
+					}
+				}
+			}
+
+			final int[] merged = OccluderLod.mergeBoxes(visData);
+			assert merged[0] == visData[0];
+			assert merged.length <= visData.length;
+
+			// merged boxes must be inside the original boxes and not overlap each other
+			for (int j = 1; j < merged.length; j++) {
+				final int box = merged[j];
+				assert PackedBox.range(box) == PackedBox.RANGE_EXTREME;
+
+				for (int x = PackedBox.x0(box); x < PackedBox.x1(box); x++) {
+					for (int y = PackedBox.y0(box); y < PackedBox.y1(box); y++) {
+						for (int z = PackedBox.z0(box); z < PackedBox.z1(box); z++) {
+							assert filled[x | (y << 4) | (z << 8)];
+							filled[x | (y << 4) | (z << 8)] = false;
+						}
+					}
+				}
+			}
+		}
+	}
 }